@@ -0,0 +1,92 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.benchmarks;
+
+import static org.logic2j.engine.model.TermApiLocator.termApi;
+
+import java.util.concurrent.TimeUnit;
+
+import org.logic2j.engine.model.Struct;
+import org.logic2j.engine.unify.Clause;
+import org.logic2j.engine.unify.Unifier;
+import org.logic2j.engine.unify.VarBindings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Renaming a clause apart for a use: deep copy versus structure sharing with {@link Clause}.
+ * Run with -prof gc to compare allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ClauseBenchmark {
+
+  @Param({"WIDE", "DEEP", "LIST"})
+  public TermShape shape;
+
+  @Param({"8", "64"})
+  public int size;
+
+  private Struct<?> term;
+  private Clause clause;
+  private Unifier unifier;
+  private VarBindings bindings;
+
+  @Setup
+  public void setUp() {
+    this.term = (Struct<?>) termApi().normalize(this.shape.build(this.size, false));
+    this.clause = new Clause(this.shape.build(this.size, false));
+    this.unifier = new Unifier();
+    this.bindings = this.unifier.getBindings();
+  }
+
+  @Benchmark
+  public Object copy() {
+    return termApi().normalize(new Struct<>(this.term));
+  }
+
+  @Benchmark
+  public boolean instantiateAndUnify() {
+    final int first = this.clause.instantiate(this.bindings);
+    final int second = this.clause.instantiate(this.bindings);
+    final boolean unified = this.unifier.unify(this.clause.getTerm(), first, this.clause.getTerm(), second);
+    this.bindings.undo(0);
+    this.bindings.releaseFrames(first);
+    return unified;
+  }
+
+  @Benchmark
+  public int instantiate() {
+    final int base = this.clause.instantiate(this.bindings);
+    this.bindings.releaseFrames(base);
+    return base;
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.benchmarks;
+
+import static org.logic2j.engine.model.SimpleBindings.bind;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.logic2j.engine.model.SimpleBindings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Binding values with {@link SimpleBindings}, then reading them back.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SimpleBindingsBenchmark {
+
+  @Param({"1", "8", "64"})
+  public int size;
+
+  private Integer[] array;
+
+  private List<Integer> list;
+
+  @Setup
+  public void setUp() {
+    this.array = new Integer[this.size];
+    for (int i = 0; i < this.size; i++) {
+      this.array[i] = i;
+    }
+    this.list = Arrays.asList(this.array);
+  }
+
+  @Benchmark
+  public Object[] bindArray() {
+    return bind(this.array).toArray();
+  }
+
+  @Benchmark
+  public Object[] bindCollection() {
+    return bind(this.list).toArray();
+  }
+
+  @Benchmark
+  public Object[] bindStream() {
+    return bind(this.list.stream()).toArray();
+  }
+
+  @Benchmark
+  public Integer bindScalar() {
+    return bind(this.array[0]).toScalar();
+  }
+}
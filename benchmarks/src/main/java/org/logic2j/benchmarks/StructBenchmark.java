@@ -0,0 +1,93 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.logic2j.engine.model.Struct;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Construction of {@link Struct}s.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StructBenchmark {
+
+  @Param({"WIDE", "DEEP", "LIST"})
+  public TermShape shape;
+
+  @Param({"8", "64"})
+  public int size;
+
+  @Param({"true", "false"})
+  public boolean ground;
+
+  /**
+   * Arguments already converted to terms, for the constructor
+   */
+  private Object[] termArgs;
+
+  /**
+   * Plain Java arguments to be converted by {@link Struct#valueOf(String, Object...)}
+   */
+  private Object[] rawArgs;
+
+  @Setup
+  public void setUp() {
+    this.termArgs = ((Struct<?>) TermShape.WIDE.build(this.size, this.ground)).getArgs();
+    this.rawArgs = new Object[this.size];
+    for (int i = 0; i < this.size; i++) {
+      this.rawArgs[i] = switch (i % 4) {
+        case 0 -> this.ground ? "atom" + i : "X" + i;
+        case 1 -> (long) i;
+        case 2 -> (float) i + 0.5f;
+        default -> i % 8 == 3;
+      };
+    }
+  }
+
+  @Benchmark
+  public Struct<?> construct() {
+    return new Struct<>("f", this.termArgs);
+  }
+
+  @Benchmark
+  public Struct<?> valueOf() {
+    return Struct.valueOf("f", this.rawArgs);
+  }
+
+  @Benchmark
+  public Object buildShape() {
+    return this.shape.build(this.size, this.ground);
+  }
+}
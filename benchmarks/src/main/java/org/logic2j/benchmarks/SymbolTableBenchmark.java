@@ -0,0 +1,96 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.logic2j.engine.model.Struct;
+import org.logic2j.engine.model.SymbolTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of obtaining canonical names from 32 concurrent builder threads: {@link String#intern()} versus {@link SymbolTable}.
+ * Names are built from chars each time, as a parser would do, and are already registered.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(32)
+public class SymbolTableBenchmark {
+  private static final int NB_NAMES = 1024;
+
+  @State(Scope.Benchmark)
+  public static class Tables {
+    final SymbolTable strong = new SymbolTable(SymbolTable.Retention.STRONG);
+    final SymbolTable weak = new SymbolTable(SymbolTable.Retention.WEAK);
+    final char[][] names = new char[NB_NAMES][];
+
+    @Setup
+    public void setUp() {
+      for (int i = 0; i < NB_NAMES; i++) {
+        final String name = "name" + i;
+        this.names[i] = name.toCharArray();
+        name.intern();
+        this.strong.intern(name);
+        this.weak.intern(name);
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int next;
+
+    String nextName(Tables tables) {
+      this.next = (this.next + 1) & (NB_NAMES - 1);
+      return new String(tables.names[this.next]);
+    }
+  }
+
+  @Benchmark
+  public String stringIntern(Tables tables, Cursor cursor) {
+    return cursor.nextName(tables).intern();
+  }
+
+  @Benchmark
+  public String symbolTableStrong(Tables tables, Cursor cursor) {
+    return tables.strong.intern(cursor.nextName(tables));
+  }
+
+  @Benchmark
+  public String symbolTableWeak(Tables tables, Cursor cursor) {
+    return tables.weak.intern(cursor.nextName(tables));
+  }
+
+  @Benchmark
+  public Struct<?> newStruct(Tables tables, Cursor cursor) {
+    return new Struct<>(cursor.nextName(tables), "a", 1);
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.benchmarks;
+
+import static org.logic2j.engine.model.TermApiLocator.termApi;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.logic2j.engine.model.Struct;
+import org.logic2j.engine.model.TermApi;
+import org.logic2j.engine.model.TermWriter;
+import org.logic2j.engine.model.Var;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Operations of {@link TermApi} on terms of various shapes and sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TermApiBenchmark {
+  private static final TermApi TERM_API = termApi();
+
+  @Param({"WIDE", "DEEP", "LIST"})
+  public TermShape shape;
+
+  @Param({"8", "64"})
+  public int size;
+
+  @Param({"true", "false"})
+  public boolean ground;
+
+  private Struct<?> term;
+
+  /**
+   * Copy of term with distinct Structs but the same Vars, so it is structurally equal.
+   */
+  private Struct<?> copy;
+
+  private Object normalized;
+
+  private final StringBuilder buffer = new StringBuilder();
+  private final TermWriter writer = new TermWriter(this.buffer);
+
+  @Setup
+  public void setUp() {
+    this.term = (Struct<?>) this.shape.build(this.size, this.ground);
+    // Not the copy constructor: it shares ground arguments, and comparison would stop at their identity
+    this.copy = (Struct<?>) TERM_API.depthFirstStructTransform(this.term, struct -> new Struct<>(struct.getName(), struct.getArgs()));
+    this.normalized = TERM_API.normalize(this.shape.build(this.size, this.ground));
+  }
+
+  @Benchmark
+  public Object normalize() {
+    return TERM_API.normalize(this.term);
+  }
+
+  @Benchmark
+  public Object factorize() {
+    return TERM_API.factorize(this.term);
+  }
+
+  @Benchmark
+  public boolean structurallyEquals() {
+    return TERM_API.structurallyEquals(this.term, this.copy);
+  }
+
+  /**
+   * Reference for {@link #structurallyEquals()}: the same comparison by plain recursion, which overflows the Java stack
+   * on long lists.
+   */
+  @Benchmark
+  public boolean structurallyEqualsRecursive() {
+    return recursiveStructurallyEquals(this.term, this.copy);
+  }
+
+  @Benchmark
+  public Var<?>[] distinctVars() {
+    return TERM_API.distinctVars(this.normalized);
+  }
+
+  @Benchmark
+  public String formatStruct() {
+    return TERM_API.formatStruct(this.term);
+  }
+
+  @Benchmark
+  public String toStringNormalized() {
+    return this.normalized.toString();
+  }
+
+  /**
+   * Into a reused buffer, as when exporting many terms.
+   */
+  @Benchmark
+  public int termWriter() throws IOException {
+    this.buffer.setLength(0);
+    this.writer.write(this.term);
+    return this.buffer.length();
+  }
+
+  private static boolean recursiveStructurallyEquals(Object term, Object other) {
+    if (term == other) {
+      return true;
+    }
+    if (term instanceof Struct<?> s1 && other instanceof Struct<?> s2) {
+      //noinspection StringEquality
+      if (s1.getArity() != s2.getArity() || s1.getName() != s2.getName()) {
+        return false;
+      }
+      for (int i = 0; i < s1.getArity(); i++) {
+        if (!recursiveStructurallyEquals(s1.getArg(i), s2.getArg(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return TERM_API.structurallyEquals(term, other);
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.benchmarks;
+
+import static org.logic2j.engine.model.Var.anyVar;
+
+import org.logic2j.engine.model.Struct;
+
+/**
+ * Shapes of the terms used by the benchmarks, each with a given number of leaves.
+ */
+public enum TermShape {
+  /**
+   * A single compound with all leaves as arguments: f(L0, L1, ..., Ln)
+   */
+  WIDE {
+    @Override
+    public Object build(int size, boolean ground) {
+      final Object[] args = new Object[size];
+      for (int i = 0; i < size; i++) {
+        args[i] = leaf(i, ground);
+      }
+      return new Struct<>("f", args);
+    }
+  },
+
+  /**
+   * Compounds nested on their first argument: s(s(...s(L0)..., Ln-1), Ln)
+   */
+  DEEP {
+    @Override
+    public Object build(int size, boolean ground) {
+      Object term = new Struct<>("s", leaf(0, ground));
+      for (int i = 1; i < size; i++) {
+        term = new Struct<>("s", term, leaf(i, ground));
+      }
+      return term;
+    }
+  },
+
+  /**
+   * A Prolog list made of nested '.'(H,T), nested on the last argument: '.'(L0, '.'(L1, ... '.'(Ln, [])))
+   */
+  LIST {
+    @Override
+    public Object build(int size, boolean ground) {
+      Object term = "[]";
+      for (int i = size - 1; i >= 0; i--) {
+        term = new Struct<>(".", leaf(i, ground), term);
+      }
+      return term;
+    }
+  };
+
+  /**
+   * @param size   Number of leaves
+   * @param ground When false, every other leaf is a distinct {@link org.logic2j.engine.model.Var}
+   * @return A new term of this shape
+   */
+  public abstract Object build(int size, boolean ground);
+
+  private static Object leaf(int i, boolean ground) {
+    if (!ground && i % 2 == 0) {
+      return anyVar("X" + i);
+    }
+    return i % 4 < 2 ? i : ("a" + i).intern();
+  }
+}
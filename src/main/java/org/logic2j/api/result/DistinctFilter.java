@@ -0,0 +1,28 @@
+package org.logic2j.api.result;
+
+import java.util.function.Predicate;
+import org.logic2j.engine.internal.OpenHashSet;
+
+/**
+ * Stateful filter that accepts each distinct element only once, based on {@link Object#hashCode()} and {@link Object#equals(Object)}.
+ * Elements are retained in an {@link OpenHashSet}, without a node allocated per element.
+ * Not thread-safe.
+ *
+ * @param <T> Type of elements
+ */
+final class DistinctFilter<T> implements Predicate<T> {
+  private final OpenHashSet<T> seen = new OpenHashSet<>();
+
+  /**
+   * @param element
+   * @return true if element was not seen before
+   */
+  @Override
+  public boolean test(T element) {
+    return this.seen.add(element);
+  }
+
+  int size() {
+    return this.seen.size();
+  }
+}
@@ -7,6 +7,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Function;
 import java.util.function.IntFunction;
 import java.util.function.Supplier;
@@ -17,7 +19,7 @@ import java.util.stream.StreamSupport;
  * Holds which kind of results are desired by a client invoker, before actually invoking the generation of results.
  * A default implementation is provided for most methods - yet they all rely on
  * {@link #list()} so the default implementation is not efficient, and implementers of this interface may want to
- * provide more efficient implementations.
+ * provide more efficient implementations, or extend {@link StreamingResultsHolder} that pulls solutions lazily.
  *
  * @param <T> Type of effective individual solutions
  */
@@ -151,6 +153,23 @@ public interface ResultsHolder<T> extends Iterable<T>, Supplier<T> {
     return StreamSupport.stream(spliterator(), false);
   }
 
+  /**
+   * @return A parallel Stream of solutions, to process them on several cores.
+   */
+  default Stream<T> parallelStream() {
+    return StreamSupport.stream(spliterator(), true);
+  }
+
+  /**
+   * @return A spliterator of unknown size over {@link #iterator()}, so that an implementation that generates solutions
+   * lazily is not materialized. Implementations that know their size should return a {@link Spliterator#SIZED}
+   * and {@link Spliterator#SUBSIZED} one, such as {@code list().spliterator()}, so that {@link #parallelStream()} splits evenly.
+   */
+  @Override
+  default Spliterator<T> spliterator() {
+    return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED);
+  }
+
   default T[] array(T[] destinationArray) {
     return list().toArray(destinationArray);
   }
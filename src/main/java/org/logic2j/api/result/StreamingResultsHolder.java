@@ -0,0 +1,259 @@
+package org.logic2j.api.result;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A {@link ResultsHolder} that pulls solutions lazily from a {@link Spliterator} source, instead of materializing
+ * them all with {@link #list()}: {@link #isPresent()} and {@link #first()} stop after one solution, {@link #isUnique()}
+ * and the like after two, and {@link #stream()} and {@link #iterator()} are truly streaming.
+ * <p>
+ * Each method invocation obtains a new source with {@link #spliterator()}, so solutions are generated again.
+ * Operators such as {@link #page(int, int)}, {@link #exactly(int)} or {@link #distinct()} return a new holder whose source
+ * wraps this one, so they compose and are applied while solutions are pulled, without holding them.
+ *
+ * @param <T> Type of effective individual solutions
+ */
+public abstract class StreamingResultsHolder<T> implements ResultsHolder<T> {
+
+  /**
+   * @param source Supplies a new {@link Spliterator} of all solutions, on every invocation.
+   * @return A {@link StreamingResultsHolder} pulling from source
+   */
+  public static <T> StreamingResultsHolder<T> of(Supplier<? extends Spliterator<T>> source) {
+    return new StreamingResultsHolder<>() {
+      @Override
+      public Spliterator<T> spliterator() {
+        return source.get();
+      }
+    };
+  }
+
+  /**
+   * @return A new source of all solutions, generation should only proceed as elements are pulled.
+   */
+  @Override
+  public abstract Spliterator<T> spliterator();
+
+  // -----------------------------------------
+  // Check existence and cardinality, only pull as many solutions as needed
+  // -----------------------------------------
+
+  @Override
+  public boolean isPresent() {
+    return countUpTo(1) > 0;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return countUpTo(1) == 0;
+  }
+
+  @Override
+  public boolean isSingle() {
+    return countUpTo(2) <= 1;
+  }
+
+  @Override
+  public boolean isUnique() {
+    return countUpTo(2) == 1;
+  }
+
+  @Override
+  public boolean isMultiple() {
+    return countUpTo(2) > 1;
+  }
+
+  @Override
+  public int count() {
+    final int[] counter = new int[]{0};
+    spliterator().forEachRemaining(solution -> counter[0]++);
+    return counter[0];
+  }
+
+  /**
+   * @param max
+   * @return Number of solutions, but pulling no more than max
+   */
+  protected int countUpTo(int max) {
+    final Spliterator<T> source = spliterator();
+    int counter = 0;
+    while (counter < max && source.tryAdvance(solution -> {
+    })) {
+      counter++;
+    }
+    return counter;
+  }
+
+  // -----------------------------------------
+  // Single-value cardinality, only pull the first solution
+  // -----------------------------------------
+
+  @Override
+  public T get() {
+    return firstOrNull();
+  }
+
+  @Override
+  public Optional<T> single() {
+    return Optional.ofNullable(firstOrNull());
+  }
+
+  @Override
+  public Optional<T> first() {
+    return single();
+  }
+
+  @Override
+  public T unique() {
+    final AtomicReference<T> holder = new AtomicReference<>();
+    if (!spliterator().tryAdvance(holder::set)) {
+      throw new IllegalStateException("Cannot obtain unique element of empty " + this);
+    }
+    return holder.get();
+  }
+
+  private T firstOrNull() {
+    final AtomicReference<T> holder = new AtomicReference<>();
+    spliterator().tryAdvance(holder::set);
+    return holder.get();
+  }
+
+  // -----------------------------------------
+  // Multiple value cardinality
+  // -----------------------------------------
+
+  @Override
+  public List<T> list() {
+    return addTo(new ArrayList<>());
+  }
+
+  @Override
+  public <R extends Collection<T>> R addTo(R targetToAddTo) {
+    spliterator().forEachRemaining(targetToAddTo::add);
+    return targetToAddTo;
+  }
+
+  @Override
+  public Stream<T> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return Spliterators.iterator(spliterator());
+  }
+
+  // -----------------------------------------
+  // Operators, applied to the source
+  // -----------------------------------------
+
+  @Override
+  public <R> StreamingResultsHolder<R> map(Function<T, R> mapping) {
+    return derive(stream -> stream.map(mapping));
+  }
+
+  /**
+   * @return Only the first solutions, further ones are not generated.
+   */
+  @Override
+  public StreamingResultsHolder<T> limit(int nbFirst) {
+    return derive(stream -> stream.limit(nbFirst));
+  }
+
+  /**
+   * @param first  Index of the first solution, the ones before are skipped and not retained
+   * @param number Maximal number of solutions
+   */
+  @Override
+  public StreamingResultsHolder<T> page(int first, int number) {
+    return derive(stream -> stream.skip(first).limit(number));
+  }
+
+  /**
+   * @return Same solutions, but pulling one more than nbFirst will throw an {@link IllegalStateException}
+   */
+  @Override
+  public StreamingResultsHolder<T> atMost(int nbFirst) {
+    return withCardinality(0, nbFirst);
+  }
+
+  /**
+   * @return Same solutions, but reaching the end with less than nbFirst will throw an {@link IllegalStateException}
+   */
+  @Override
+  public StreamingResultsHolder<T> atLeast(int nbFirst) {
+    return withCardinality(nbFirst, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @return Same solutions, but an {@link IllegalStateException} is thrown as soon as pulling one more than nbFirst,
+   * or when reaching the end with less.
+   */
+  @Override
+  public StreamingResultsHolder<T> exactly(int nbFirst) {
+    return withCardinality(nbFirst, nbFirst);
+  }
+
+  /**
+   * Remove duplicate solutions, based on {@link Object#hashCode()} (structural for {@link org.logic2j.engine.model.Struct}s)
+   * and {@link Object#equals(Object)}. Only the distinct solutions are retained, in a compact table, see {@link DistinctFilter}.
+   */
+  @Override
+  public StreamingResultsHolder<T> distinct() {
+    return derive(stream -> stream.filter(new DistinctFilter<>()));
+  }
+
+  private <R> StreamingResultsHolder<R> derive(Function<Stream<T>, Stream<R>> operator) {
+    return of(() -> operator.apply(stream()).spliterator());
+  }
+
+  private StreamingResultsHolder<T> withCardinality(int min, int max) {
+    return of(() -> new CardinalitySpliterator<>(spliterator(), min, max, this));
+  }
+
+  /**
+   * Checks the number of solutions while they are pulled.
+   */
+  private static final class CardinalitySpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+    private final Spliterator<T> source;
+    private final int min;
+    private final int max;
+    private final Object holder;
+    private int count = 0;
+
+    CardinalitySpliterator(Spliterator<T> source, int min, int max, Object holder) {
+      super(Math.min(source.estimateSize(), max), source.characteristics() & ORDERED);
+      this.source = source;
+      this.min = min;
+      this.max = max;
+      this.holder = holder;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      final boolean advanced = this.source.tryAdvance(solution -> {
+        if (++this.count > this.max) {
+          throw new IllegalStateException("Expected at most " + this.max + " solutions but got more from " + this.holder);
+        }
+        action.accept(solution);
+      });
+      if (!advanced && this.count < this.min) {
+        throw new IllegalStateException("Expected at least " + this.min + " solutions but got " + this.count + " from " + this.holder);
+      }
+      return advanced;
+    }
+  }
+
+}
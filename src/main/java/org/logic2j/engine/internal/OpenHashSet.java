@@ -0,0 +1,160 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.internal;
+
+import java.util.Objects;
+
+/**
+ * A set of objects in an open-addressing table with their hash codes alongside: unlike a {@link java.util.HashSet}
+ * there is no node allocated per element, and {@link Object#equals(Object)} is only invoked on elements with the same hash,
+ * which is cheap to obtain for terms that cache it, such as {@link org.logic2j.engine.model.Struct}s. The table is kept at most half full,
+ * null is a valid element. Elements cannot be removed.
+ * <p>
+ * Not thread-safe while adding; once filled and safely published it can be queried concurrently.
+ * <p>
+ * Internal to logic2j, shared by the engine and the result API: not part of the public API.
+ *
+ * @param <T> Type of elements
+ */
+public final class OpenHashSet<T> {
+  /**
+   * Largest capacity of the table, a power of 2
+   */
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  /**
+   * Maximal number of elements, so that the table stays half full
+   */
+  public static final int MAX_SIZE = MAX_CAPACITY / 2;
+
+  /**
+   * Stands for null in the table, where null marks a free slot
+   */
+  private static final Object NULL = new Object();
+
+  private int[] hashes;
+  private Object[] elements;
+  /**
+   * 32 - log2(capacity): the slot of a hash is taken from the high bits of its product with the golden ratio
+   */
+  private int shift;
+  private int size = 0;
+
+  public OpenHashSet() {
+    this(8);
+  }
+
+  /**
+   * @param expectedSize Number of elements that can be added without growing the table
+   * @throws IllegalArgumentException If expectedSize exceeds {@link #MAX_SIZE}
+   */
+  public OpenHashSet(int expectedSize) {
+    if (expectedSize > MAX_SIZE) {
+      throw new IllegalArgumentException("Cannot hold more than " + MAX_SIZE + " elements, " + expectedSize + " expected");
+    }
+    final int capacity = Integer.highestOneBit(Math.max(expectedSize, 1) * 2 - 1) << 1;
+    this.hashes = new int[capacity];
+    this.elements = new Object[capacity];
+    this.shift = Integer.numberOfLeadingZeros(capacity) + 1;
+  }
+
+  /**
+   * @param element
+   * @return true if element was not in this set, false if an equal one was
+   * @throws IllegalStateException If this set already holds {@link #MAX_SIZE} elements
+   */
+  public boolean add(T element) {
+    final Object stored = element == null ? NULL : element;
+    final int hash = Objects.hashCode(element);
+    final int mask = this.hashes.length - 1;
+    int slot = slot(hash, this.shift);
+    Object candidate;
+    while ((candidate = this.elements[slot]) != null) {
+      if (this.hashes[slot] == hash && stored.equals(candidate)) {
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+    if (this.size == MAX_SIZE) {
+      throw new IllegalStateException("Cannot hold more than " + MAX_SIZE + " elements");
+    }
+    this.hashes[slot] = hash;
+    this.elements[slot] = stored;
+    if (++this.size * 2 > this.hashes.length) {
+      grow();
+    }
+    return true;
+  }
+
+  /**
+   * @param element
+   * @return true if an equal element was added
+   */
+  public boolean contains(Object element) {
+    final Object stored = element == null ? NULL : element;
+    final int hash = Objects.hashCode(element);
+    final int mask = this.hashes.length - 1;
+    int slot = slot(hash, this.shift);
+    Object candidate;
+    while ((candidate = this.elements[slot]) != null) {
+      if (this.hashes[slot] == hash && stored.equals(candidate)) {
+        return true;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return false;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  private void grow() {
+    final int[] oldHashes = this.hashes;
+    final Object[] oldElements = this.elements;
+    final int capacity = oldHashes.length * 2;
+    this.hashes = new int[capacity];
+    this.elements = new Object[capacity];
+    this.shift--;
+    final int mask = capacity - 1;
+    for (int i = 0; i < oldHashes.length; i++) {
+      if (oldElements[i] != null) {
+        int slot = slot(oldHashes[i], this.shift);
+        while (this.elements[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        this.hashes[slot] = oldHashes[i];
+        this.elements[slot] = oldElements[i];
+      }
+    }
+  }
+
+  /**
+   * Fibonacci hashing: keep the high bits of the product, which depend on all bits of the hash code,
+   * so that hash codes differing only in their high bits (such as shifted Integers) do not cluster.
+   */
+  private static int slot(int hashCode, int shift) {
+    return (hashCode * 0x9E3779B9) >>> shift;
+  }
+
+  @Override
+  public String toString() {
+    return this.getClass().getSimpleName() + "(size=" + this.size + ')';
+  }
+
+}
@@ -0,0 +1,304 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import static org.logic2j.engine.model.BinaryTermFormat.ANON;
+import static org.logic2j.engine.model.BinaryTermFormat.ATOM;
+import static org.logic2j.engine.model.BinaryTermFormat.DOUBLE;
+import static org.logic2j.engine.model.BinaryTermFormat.ENUM;
+import static org.logic2j.engine.model.BinaryTermFormat.FALSE;
+import static org.logic2j.engine.model.BinaryTermFormat.INT;
+import static org.logic2j.engine.model.BinaryTermFormat.LONG;
+import static org.logic2j.engine.model.BinaryTermFormat.STRUCT;
+import static org.logic2j.engine.model.BinaryTermFormat.STRUCT_REF;
+import static org.logic2j.engine.model.BinaryTermFormat.TRUE;
+import static org.logic2j.engine.model.BinaryTermFormat.VAR;
+import static org.logic2j.engine.model.BinaryTermFormat.VAR_REF;
+import static org.logic2j.engine.model.BinaryTermFormat.VERSION;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.logic2j.engine.exception.InvalidTermException;
+
+/**
+ * Decodes terms written by a {@link BinaryTermEncoder}, in the same order, directly from a {@link ByteBuffer}
+ * (heap or direct, e.g. memory-mapped or received from the network) without copying it.
+ * Symbols are obtained from the {@link SymbolTable}, so they are canonical as with any other term.
+ * <p>
+ * Input may come from another node: malformed or truncated input is reported with an {@link InvalidTermException},
+ * counts and lengths are checked against the remaining bytes before allocating, and the only classes initialized
+ * from names found in the input are enums. Not thread-safe.
+ */
+public final class BinaryTermDecoder {
+  private final ByteBuffer buffer;
+
+  private final List<String> symbols = new ArrayList<>();
+  private final List<Struct<?>> structs = new ArrayList<>();
+  private final List<Var<?>> vars = new ArrayList<>();
+  private final Map<String, Class<?>> classes = new HashMap<>();
+
+  /**
+   * Only used to decode symbols from buffers without an accessible array
+   */
+  private byte[] scratch = new byte[0];
+
+  /**
+   * @param buffer Read from its position, which is advanced as terms are read.
+   */
+  public BinaryTermDecoder(ByteBuffer buffer) {
+    this.buffer = buffer;
+    if (!buffer.hasRemaining()) {
+      throw new InvalidTermException("Empty binary term input");
+    }
+    final byte version = buffer.get();
+    if (version != VERSION) {
+      throw new InvalidTermException("Unsupported binary term format version " + version + ", expected " + VERSION);
+    }
+  }
+
+  public boolean hasRemaining() {
+    return this.buffer.hasRemaining();
+  }
+
+  /**
+   * @return The next term
+   * @throws InvalidTermException If the input is malformed or truncated
+   */
+  public Object read() {
+    final int start = this.buffer.position();
+    try {
+      return readTerm();
+    } catch (InvalidTermException e) {
+      throw e;
+    } catch (RuntimeException e) {
+      // Such as BufferUnderflowException on truncated input
+      throw new InvalidTermException("Malformed binary term at position " + start + ": " + e, e);
+    }
+  }
+
+  private Object readTerm() {
+    final byte tag = this.buffer.get();
+    if (tag != STRUCT) {
+      return readNonStruct(tag);
+    }
+    // Post-order construction with an explicit stack, so terms of any depth can be decoded
+    final ArrayDeque<Frame> frames = new ArrayDeque<>();
+    frames.push(readStructHeader());
+    Struct<?> completed = null;
+    while (true) {
+      final Frame frame = frames.peek();
+      if (completed != null) {
+        frame.args[frame.next++] = completed;
+        completed = null;
+      }
+      Frame child = null;
+      while (child == null && frame.next < frame.args.length) {
+        final byte argTag = this.buffer.get();
+        if (argTag == STRUCT) {
+          child = readStructHeader();
+        } else {
+          frame.args[frame.next++] = readNonStruct(argTag);
+        }
+      }
+      if (child != null) {
+        frames.push(child);
+      } else {
+        frames.pop();
+        final Struct<?> struct = new Struct<>(frame.name, frame.args);
+        struct.setIndex(frame.index);
+        this.structs.set(frame.number, struct);
+        if (frames.isEmpty()) {
+          return struct;
+        }
+        completed = struct;
+      }
+    }
+  }
+
+  private static final class Frame {
+    final int number;
+    final String name;
+    final int index;
+    final Object[] args;
+    int next = 0;
+
+    Frame(int number, String name, int arity, int index) {
+      this.number = number;
+      this.name = name;
+      this.index = index;
+      this.args = new Object[arity];
+    }
+  }
+
+  private Frame readStructHeader() {
+    final int number = this.structs.size();
+    this.structs.add(null); // Until its arguments are decoded
+    final String name = readSymbol();
+    // Each argument takes at least one byte
+    final int arity = readLength("arity");
+    final int index = readVarint() - 2;
+    return new Frame(number, name, arity, index);
+  }
+
+  private Object readNonStruct(byte tag) {
+    return switch (tag) {
+      case STRUCT_REF -> {
+        final Struct<?> struct = this.structs.get(readReference(this.structs.size(), "Struct"));
+        if (struct == null) {
+          throw new InvalidTermException("Invalid reference to a Struct being decoded, terms cannot be cyclic");
+        }
+        yield struct;
+      }
+      case ATOM -> readSymbol();
+      case INT -> (int) unzigzag(readVarLong());
+      case LONG -> unzigzag(readVarLong());
+      case DOUBLE -> Double.longBitsToDouble(this.buffer.getLong());
+      case VAR -> readVar();
+      case VAR_REF -> this.vars.get(readReference(this.vars.size(), "Var"));
+      case ANON -> Var.anon();
+      case TRUE -> Boolean.TRUE;
+      case FALSE -> Boolean.FALSE;
+      case ENUM -> readEnum();
+      default -> throw new InvalidTermException("Invalid tag " + tag + " at position " + (this.buffer.position() - 1));
+    };
+  }
+
+  private Var<?> readVar() {
+    final String name = readSymbol();
+    final Class<?> type = classForName(readSymbol(), false);
+    final Var<?> var = new Var<>(type, name);
+    var.setIndex(readVarint() - 2);
+    this.vars.add(var);
+    return var;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private Object readEnum() {
+    final Class enumClass = classForName(readSymbol(), true);
+    final String constant = readSymbol();
+    try {
+      return Enum.valueOf(enumClass, constant);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidTermException("Cannot decode unknown constant " + constant + " of " + enumClass, e);
+    }
+  }
+
+  /**
+   * Load a class without initializing it, only enums are initialized, once checked.
+   *
+   * @param className
+   * @param isEnum true to require an enum
+   */
+  private Class<?> classForName(String className, boolean isEnum) {
+    final Class<?> found = this.classes.computeIfAbsent(className, name -> {
+      try {
+        return Class.forName(name, false, Thread.currentThread().getContextClassLoader());
+      } catch (ClassNotFoundException e) {
+        throw new InvalidTermException("Cannot decode term of unknown " + name, e);
+      }
+    });
+    if (isEnum && !found.isEnum()) {
+      throw new InvalidTermException("Cannot decode " + className + " as an enum");
+    }
+    return found;
+  }
+
+  // ---------------------------------------------------------------------------
+  // Low-level
+  // ---------------------------------------------------------------------------
+
+  private String readSymbol() {
+    final int id = readVarint();
+    if (id < this.symbols.size()) {
+      return this.symbols.get(id);
+    }
+    if (id != this.symbols.size()) {
+      throw new InvalidTermException("Invalid symbol id " + id + ", only " + this.symbols.size() + " defined");
+    }
+    final int length = readLength("symbol length");
+    final String text;
+    if (this.buffer.hasArray()) {
+      text = new String(this.buffer.array(), this.buffer.arrayOffset() + this.buffer.position(), length, StandardCharsets.UTF_8);
+      this.buffer.position(this.buffer.position() + length);
+    } else {
+      if (this.scratch.length < length) {
+        this.scratch = new byte[Math.max(length, this.scratch.length * 2)];
+      }
+      this.buffer.get(this.scratch, 0, length);
+      text = new String(this.scratch, 0, length, StandardCharsets.UTF_8);
+    }
+    final String symbol = SymbolTable.symbol(text);
+    this.symbols.add(symbol);
+    return symbol;
+  }
+
+  private static long unzigzag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private int readVarint() {
+    final long value = readVarLong();
+    if (value < 0 || value > Integer.MAX_VALUE) {
+      throw new InvalidTermException("Value " + value + " out of range at position " + this.buffer.position());
+    }
+    return (int) value;
+  }
+
+  /**
+   * @return A count of items of at least one byte each, checked against the remaining bytes
+   */
+  private int readLength(String what) {
+    final int length = readVarint();
+    if (length > this.buffer.remaining()) {
+      throw new InvalidTermException("Invalid " + what + " " + length + ", only " + this.buffer.remaining() + " bytes remain");
+    }
+    return length;
+  }
+
+  /**
+   * @return A reference to one of the size items already decoded
+   */
+  private int readReference(int size, String what) {
+    final int number = readVarint();
+    if (number >= size) {
+      throw new InvalidTermException("Invalid reference to " + what + " " + number + ", only " + size + " decoded");
+    }
+    return number;
+  }
+
+  private long readVarLong() {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      if (shift > 63) {
+        throw new InvalidTermException("Malformed varint at position " + this.buffer.position());
+      }
+      b = this.buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+}
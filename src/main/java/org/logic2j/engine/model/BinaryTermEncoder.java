@@ -0,0 +1,270 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import static org.logic2j.engine.model.BinaryTermFormat.ANON;
+import static org.logic2j.engine.model.BinaryTermFormat.ATOM;
+import static org.logic2j.engine.model.BinaryTermFormat.DOUBLE;
+import static org.logic2j.engine.model.BinaryTermFormat.ENUM;
+import static org.logic2j.engine.model.BinaryTermFormat.FALSE;
+import static org.logic2j.engine.model.BinaryTermFormat.INT;
+import static org.logic2j.engine.model.BinaryTermFormat.LONG;
+import static org.logic2j.engine.model.BinaryTermFormat.STRUCT;
+import static org.logic2j.engine.model.BinaryTermFormat.STRUCT_REF;
+import static org.logic2j.engine.model.BinaryTermFormat.TRUE;
+import static org.logic2j.engine.model.BinaryTermFormat.VAR;
+import static org.logic2j.engine.model.BinaryTermFormat.VAR_REF;
+import static org.logic2j.engine.model.BinaryTermFormat.VERSION;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import org.logic2j.engine.exception.InvalidTermException;
+
+/**
+ * Encodes terms into a compact binary form, to ship goals and batches of facts between processes,
+ * see {@link BinaryTermFormat} for the format and {@link BinaryTermDecoder} to decode.
+ * <p>
+ * All terms written share a dictionary of symbols (functors, atoms, names of variables), so each is written in full only once.
+ * A sub-term shared by reference, such as produced by {@link TermApi#factorize(Object)}, is written once then
+ * referenced by number, so sharing is preserved when decoding; so is the identity of {@link Var}s and their indexes.
+ * The {@link Struct#getContent()} is not encoded.
+ * <p>
+ * Atomic values can be atoms (Strings), Integers, Longs, Doubles, Booleans and Enums; any other object is rejected
+ * with an {@link InvalidTermException}.
+ * Not thread-safe. Structs written are retained to be referenced, use a new encoder per batch.
+ */
+public final class BinaryTermEncoder {
+  private byte[] bytes = new byte[256];
+  private int size = 0;
+
+  private final Map<String, Integer> symbols = new HashMap<>();
+  private final Map<Struct<?>, Integer> structs = new IdentityHashMap<>();
+  private final Map<Var<?>, Integer> vars = new IdentityHashMap<>();
+
+  public BinaryTermEncoder() {
+    writeByte(VERSION);
+  }
+
+  /**
+   * Append a term.
+   *
+   * @param term
+   * @return this
+   * @throws InvalidTermException If term contains a value that cannot be encoded: nothing of term is then retained,
+   * so this encoder can still be used for other terms.
+   */
+  public BinaryTermEncoder write(Object term) {
+    final int sizeMark = this.size;
+    final int nbSymbols = this.symbols.size();
+    final int nbStructs = this.structs.size();
+    final int nbVars = this.vars.size();
+    try {
+      writeTerm(term);
+    } catch (RuntimeException e) {
+      // Back-references are numbered, anything registered by this term would shift those of the next ones
+      this.size = sizeMark;
+      this.symbols.values().removeIf(id -> id >= nbSymbols);
+      this.structs.values().removeIf(number -> number >= nbStructs);
+      this.vars.values().removeIf(number -> number >= nbVars);
+      throw e;
+    }
+    return this;
+  }
+
+  private void writeTerm(Object term) {
+    if (!(term instanceof Struct<?> root)) {
+      writeAtomic(term);
+      return;
+    }
+    if (!writeStructHeader(root)) {
+      return;
+    }
+    final TermStack stack = TermStack.acquire();
+    try {
+      stack.push(root);
+      while (!stack.isEmpty()) {
+        final Object arg = stack.nextArg();
+        if (arg == null) {
+          stack.pop();
+        } else if (arg instanceof Struct<?> struct) {
+          if (writeStructHeader(struct)) {
+            stack.push(struct);
+          }
+        } else {
+          writeAtomic(arg);
+        }
+      }
+    } finally {
+      stack.release();
+    }
+  }
+
+  /**
+   * @return true if the arguments of struct must be written next, false if it was written as a reference
+   */
+  private boolean writeStructHeader(Struct<?> struct) {
+    final Integer number = this.structs.get(struct);
+    if (number != null) {
+      writeByte(STRUCT_REF);
+      writeVarint(number);
+      return false;
+    }
+    this.structs.put(struct, this.structs.size());
+    writeByte(STRUCT);
+    writeSymbol(struct.getName());
+    writeVarint(struct.getArity());
+    writeVarint(struct.getIndex() + 2);
+    return true;
+  }
+
+  private void writeAtomic(Object term) {
+    switch (term) {
+      case String atom -> {
+        writeByte(ATOM);
+        writeSymbol(atom);
+      }
+      case Integer value -> {
+        writeByte(INT);
+        writeVarLong(zigzag(value));
+      }
+      case Long value -> {
+        writeByte(LONG);
+        writeVarLong(zigzag(value));
+      }
+      case Double value -> {
+        writeByte(DOUBLE);
+        writeLong(Double.doubleToRawLongBits(value));
+      }
+      case Var<?> var -> writeVar(var);
+      case Boolean value -> writeByte(value ? TRUE : FALSE);
+      case Enum<?> value -> {
+        writeByte(ENUM);
+        writeSymbol(value.getDeclaringClass().getName());
+        writeSymbol(value.name());
+      }
+      case null -> throw new InvalidTermException("Cannot encode null");
+      default -> throw new InvalidTermException("Cannot encode " + term + " of " + term.getClass());
+    }
+  }
+
+  private void writeVar(Var<?> var) {
+    if (var.isAnon()) {
+      writeByte(ANON);
+      return;
+    }
+    final Integer number = this.vars.get(var);
+    if (number != null) {
+      writeByte(VAR_REF);
+      writeVarint(number);
+      return;
+    }
+    this.vars.put(var, this.vars.size());
+    writeByte(VAR);
+    writeSymbol(var.getName());
+    writeSymbol(var.getType().getName());
+    writeVarint(var.getIndex() + 2);
+  }
+
+  // ---------------------------------------------------------------------------
+  // Low-level
+  // ---------------------------------------------------------------------------
+
+  private void writeSymbol(String symbol) {
+    final Integer id = this.symbols.get(symbol);
+    if (id != null) {
+      writeVarint(id);
+      return;
+    }
+    final int newId = this.symbols.size();
+    this.symbols.put(symbol, newId);
+    writeVarint(newId);
+    final byte[] utf8 = symbol.getBytes(StandardCharsets.UTF_8);
+    writeVarint(utf8.length);
+    ensureCapacity(utf8.length);
+    System.arraycopy(utf8, 0, this.bytes, this.size, utf8.length);
+    this.size += utf8.length;
+  }
+
+  private static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private void writeVarint(int value) {
+    writeVarLong(value & 0xFFFFFFFFL);
+  }
+
+  private void writeVarLong(long value) {
+    ensureCapacity(10);
+    while ((value & ~0x7FL) != 0) {
+      this.bytes[this.size++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    this.bytes[this.size++] = (byte) value;
+  }
+
+  private void writeLong(long value) {
+    ensureCapacity(8);
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      this.bytes[this.size++] = (byte) (value >>> shift);
+    }
+  }
+
+  private void writeByte(byte value) {
+    ensureCapacity(1);
+    this.bytes[this.size++] = value;
+  }
+
+  private void ensureCapacity(int extra) {
+    if (this.size + extra > this.bytes.length) {
+      this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.size + extra));
+    }
+  }
+
+  // ---------------------------------------------------------------------------
+  // Output
+  // ---------------------------------------------------------------------------
+
+  /**
+   * @return Number of bytes written so far
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * @return The bytes written so far, not copied: do not modify.
+   */
+  public ByteBuffer toByteBuffer() {
+    return ByteBuffer.wrap(this.bytes, 0, this.size);
+  }
+
+  public byte[] toByteArray() {
+    return Arrays.copyOf(this.bytes, this.size);
+  }
+
+  public void writeTo(OutputStream out) throws IOException {
+    out.write(this.bytes, 0, this.size);
+  }
+
+}
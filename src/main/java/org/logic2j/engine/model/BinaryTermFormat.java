@@ -0,0 +1,58 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+/**
+ * Constants of the binary format of {@link BinaryTermEncoder} and {@link BinaryTermDecoder}.
+ * <p>
+ * A stream starts with {@link #VERSION}, followed by terms. Each term starts with a tag byte:
+ * <ul>
+ * <li>{@link #STRUCT}: functor symbol, arity (varint), index + 2 (varint), then the arguments. Structs are numbered
+ * in the order of their tags, from 0 for the whole stream.</li>
+ * <li>{@link #STRUCT_REF}: number of a Struct already written (varint), for sub-terms shared by reference.</li>
+ * <li>{@link #ATOM}: a symbol.</li>
+ * <li>{@link #INT}, {@link #LONG}: zigzag varint. {@link #DOUBLE}: 8 bytes, big-endian.</li>
+ * <li>{@link #VAR}: name symbol, type symbol (class name), index + 2 (varint). Vars are numbered like Structs but
+ * separately, a Var written again is a {@link #VAR_REF} with its number.</li>
+ * <li>{@link #ANON}: the anonymous variable.</li>
+ * <li>{@link #TRUE}, {@link #FALSE}: Booleans. {@link #ENUM}: class name symbol, constant name symbol.</li>
+ * </ul>
+ * A symbol is the varint id of an entry of the dictionary, shared by all terms of the stream; an id equal to the
+ * size of the dictionary defines a new entry, followed by its length in bytes (varint) and its UTF-8 text.
+ */
+final class BinaryTermFormat {
+  static final byte VERSION = 1;
+
+  static final byte STRUCT = 1;
+  static final byte STRUCT_REF = 2;
+  static final byte ATOM = 3;
+  static final byte INT = 4;
+  static final byte LONG = 5;
+  static final byte DOUBLE = 6;
+  static final byte VAR = 7;
+  static final byte VAR_REF = 8;
+  static final byte ANON = 9;
+  static final byte TRUE = 10;
+  static final byte FALSE = 11;
+  static final byte ENUM = 12;
+
+  private BinaryTermFormat() {
+    // Forbid instantiation
+  }
+
+}
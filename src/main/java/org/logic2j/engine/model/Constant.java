@@ -29,19 +29,28 @@ import java.util.stream.Stream;
 public interface Constant<T> extends Binding<T> {
 
   /**
-   * @return true if data comes from a stream that cannot be consumed more than once.
+   * Defines whether values can be traversed more than once.
+   * <ul>
+   * <li>false: all methods can be invoked any number of times, they do not consume the values.
+   * Constants bound from streams or iterators record values as they are pulled to replay them, so there is no need
+   * to copy them defensively.</li>
+   * <li>true: the first invocation of {@link #size()}, {@link #contains(Object)}, {@link #toArray()}, {@link #toScalar()}
+   * or {@link #toStream()} consumes the values, any further one throws an {@link IllegalStateException}.</li>
+   * </ul>
+   *
+   * @return true if values can be traversed only once.
    */
   boolean isUniqueFeed();
 
   /**
-   * Calculate the size. In case of a stream this will consume it.
+   * Calculate the size. In case of a stream this will pull all values.
    *
    * @return Cardinality of data: 0=empty, 1=scalar, >1=vector, -1=unknown
    */
   long size();
 
   /**
-   * Check content; in case of a stream this will consume it.
+   * Check content; in case of a stream this will pull all values.
    *
    * @param value
    * @return
@@ -49,14 +58,14 @@ public interface Constant<T> extends Binding<T> {
   boolean contains(T value);
 
   /**
-   * Convert to array; in case of a stream this will consume it.
+   * Convert to array; in case of a stream this will pull all values.
    *
    * @return
    */
   T[] toArray();
 
   /**
-   * Convert to single value; in case of a stream this will consume it.
+   * Convert to single value; in case of a stream this will pull up to two values.
    * In case more than one values exists a IllegalStateException must be thrown
    *
    * @return The single value or null if absent.
@@ -64,12 +73,22 @@ public interface Constant<T> extends Binding<T> {
   T toScalar();
 
   /**
-   * Convert to a Stream.
+   * Convert to a Stream. Implementations backed by arrays or collections provide {@link java.util.Spliterator#SIZED}
+   * and {@link java.util.Spliterator#SUBSIZED} streams, so that {@link #parallelStream()} splits them evenly.
    *
    * @return
    */
   Stream<T> toStream();
 
+  /**
+   * Convert to a parallel Stream, to process values on several cores.
+   *
+   * @return
+   */
+  default Stream<T> parallelStream() {
+    return toStream().parallel();
+  }
+
   default List<T> toList() {
     return Arrays.asList(toArray());
   }
@@ -0,0 +1,87 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import java.util.Arrays;
+import java.util.stream.DoubleStream;
+import java.util.stream.Stream;
+
+/**
+ * A {@link Constant} of double values backed by a primitive array, with no boxing on the primitive methods
+ * {@link #toDoubleArray()}, {@link #toDoubleStream()} and {@link #containsDouble(double)}.
+ * Membership is checked by binary search on a sorted copy, made on first use (or the values themselves if already sorted),
+ * values are compared as by {@link Double#equals(Object)}.
+ * Use {@link SimpleBindings#bindDoubles(double...)} to instantiate.
+ */
+public final class DoubleConstant extends PrimitiveConstant<Double, double[]> {
+
+  DoubleConstant(double[] values) {
+    super(values, Double.class, "Doubles");
+  }
+
+  // ---------------------------------------------------------------------------
+  // Primitive accessors
+  // ---------------------------------------------------------------------------
+
+  /**
+   * @return The values, not copied: do not modify.
+   */
+  public double[] toDoubleArray() {
+    return this.values;
+  }
+
+  public DoubleStream toDoubleStream() {
+    return Arrays.stream(this.values);
+  }
+
+  public boolean containsDouble(double value) {
+    return Arrays.binarySearch(sorted(), value) >= 0;
+  }
+
+  @Override
+  boolean isSorted(double[] array) {
+    for (int i = 1; i < array.length; i++) {
+      if (Double.compare(array[i - 1], array[i]) > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  double[] sortedCopy(double[] array) {
+    final double[] copy = array.clone();
+    Arrays.sort(copy);
+    return copy;
+  }
+
+  // ---------------------------------------------------------------------------
+  // Implementation of Constant
+  // ---------------------------------------------------------------------------
+
+  @Override
+  public boolean contains(Double value) {
+    return value != null && containsDouble(value);
+  }
+
+  @Override
+  public Stream<Double> toStream() {
+    return toDoubleStream().boxed();
+  }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hash-consing table used during one factorization (see {@link TermApi#factorize(Object)}): holds the canonical
+ * instance of every distinct {@link Struct} and {@link Var} encountered so far.
+ * <p>
+ * Since arguments are factorized before their parent, a {@link Struct} can be looked up by a {@link StructKey} made of its
+ * name, arity and the identities of its canonical arguments, this costs O(arity) instead of scanning all sub-terms.
+ * {@link Var}s are matched by name: the first one found wins.
+ * Not thread-safe, instances are short-lived and confined to one factorization.
+ */
+final class FactorizationTable {
+
+  private final Map<StructKey, Struct<?>> structs = new HashMap<>();
+  private final Map<String, Var<?>> vars = new HashMap<>();
+
+  /**
+   * @param struct A {@link Struct} whose arguments are all canonical already
+   * @return The first registered {@link Struct} structurally equal to struct, or struct itself, which is then registered.
+   */
+  Struct<?> canonical(Struct<?> struct) {
+    final Struct<?> existing = this.structs.putIfAbsent(new StructKey(struct), struct);
+    return existing != null ? existing : struct;
+  }
+
+  /**
+   * @param var
+   * @return The first registered {@link Var} of the same name, or var itself, which is then registered.
+   */
+  Var<?> canonical(Var<?> var) {
+    final Var<?> existing = this.vars.putIfAbsent(var.getName(), var);
+    return existing != null ? existing : var;
+  }
+
+}
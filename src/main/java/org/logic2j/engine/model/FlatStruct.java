@@ -0,0 +1,102 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+/**
+ * Read-only view of a compound held in a {@link FlatTermStore}, with the accessors of a {@link Struct}.
+ * Reading the functor and atomic arguments does not materialize the term; compound arguments are returned as
+ * other views. Views are cheap and can be discarded, two views of the same cells are equal.
+ */
+public final class FlatStruct {
+  private final FlatTermStore store;
+  private final long address;
+
+  FlatStruct(FlatTermStore store, long address) {
+    this.store = store;
+    this.address = address;
+  }
+
+  public FunctorSignature getSignature() {
+    return this.store.signature(this.address);
+  }
+
+  public String getName() {
+    return getSignature().getName();
+  }
+
+  public int getArity() {
+    return getSignature().getArity();
+  }
+
+  /**
+   * @param argIndex
+   * @return The argument: an atom (String), a number, a {@link Var} (a new instance on every invocation),
+   * another {@link FlatStruct} for a compound, or any other object stored.
+   */
+  public Object getArg(int argIndex) {
+    if (argIndex < 0 || argIndex >= getArity()) {
+      throw new IndexOutOfBoundsException("Argument index " + argIndex + " out of arity " + getArity() + " of " + getSignature());
+    }
+    return this.store.argValue(this.store.get(this.address + 1 + argIndex), null);
+  }
+
+  /**
+   * @return true if the argument is a compound, or a zero-arity {@link Struct} such as "true"
+   */
+  public boolean isStructArg(int argIndex) {
+    return FlatTermStore.tag(this.store.get(this.address + 1 + argIndex)) == FlatTermStore.TAG_STRUCT;
+  }
+
+  /**
+   * @return A new {@link Struct} equal to the one that was added to the store.
+   */
+  public Struct<?> toStruct() {
+    return this.store.toStruct(this.address);
+  }
+
+  public long getAddress() {
+    return this.address;
+  }
+
+  public FlatTermStore getStore() {
+    return this.store;
+  }
+
+  // ---------------------------------------------------------------------------
+  // Methods of java.lang.Object
+  // ---------------------------------------------------------------------------
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof FlatStruct that && this.store == that.store && this.address == that.address;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(this.address);
+  }
+
+  /**
+   * @return Same as the {@link Struct}, materialized
+   */
+  @Override
+  public String toString() {
+    return toStruct().toString();
+  }
+
+}
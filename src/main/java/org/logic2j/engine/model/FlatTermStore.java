@@ -0,0 +1,374 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.logic2j.engine.exception.InvalidTermException;
+
+/**
+ * Compact storage of many {@link Struct}s, typically facts, as tagged 64-bit cells in direct (off-heap) memory
+ * instead of Java object graphs, in the manner of the heap of a Warren Abstract Machine.
+ * <p>
+ * A compound is a functor cell followed by one cell per argument. Each cell has a tag in its 4 high bits, and a payload:
+ * <ul>
+ * <li>{@link #TAG_FUNCTOR}: id of the {@link FunctorSignature} in the dictionary of this store in the low 28 bits,
+ * and the index of the {@link Struct} + 2 in the high 32 bits</li>
+ * <li>{@link #TAG_ATOM}: id of the atom (a String) in the dictionary</li>
+ * <li>{@link #TAG_INT}, {@link #TAG_LONG}: the value itself, longs of more than 60 bits are stored as {@link #TAG_OBJECT}</li>
+ * <li>{@link #TAG_STRUCT}: address of the functor cell of a compound argument, or of a zero-arity Struct such as "true"</li>
+ * <li>{@link #TAG_DOUBLE}: address of a cell holding the raw bits of the value</li>
+ * <li>{@link #TAG_VAR}: address of two cells describing the {@link Var}: type, name and index. All occurrences of the same
+ * Var in a term refer to the same address, so sharing is restored on conversion.</li>
+ * <li>{@link #TAG_ANON}: the anonymous variable</li>
+ * <li>{@link #TAG_OBJECT}: id of any other object, kept on the heap in the dictionary</li>
+ * </ul>
+ * Terms are added with {@link #add(Struct)} that returns their address, then read with {@link #view(long)} without
+ * materializing them, or converted back with {@link #toStruct(long)}. Conversion is lossless, indexes included so that
+ * normalized terms are read back normalized, except for the {@link Struct#getContent()} that is not stored;
+ * shared sub-terms are stored once per occurrence.
+ * <p>
+ * Memory is allocated in pages of direct buffers, a compound never spans two pages.
+ * Adding is not thread-safe; once added and safely published, terms can be read concurrently.
+ */
+public final class FlatTermStore {
+  static final int TAG_FUNCTOR = 1;
+  static final int TAG_ATOM = 2;
+  static final int TAG_INT = 3;
+  static final int TAG_LONG = 4;
+  static final int TAG_STRUCT = 5;
+  static final int TAG_DOUBLE = 6;
+  static final int TAG_VAR = 7;
+  static final int TAG_ANON = 8;
+  static final int TAG_OBJECT = 9;
+
+  private static final int TAG_SHIFT = 60;
+  private static final long PAYLOAD_MASK = (1L << TAG_SHIFT) - 1;
+  private static final long MIN_INLINE_LONG = -(1L << (TAG_SHIFT - 1));
+  private static final long MAX_INLINE_LONG = (1L << (TAG_SHIFT - 1)) - 1;
+
+  /**
+   * Bits of the signature id in a functor cell, the index of the Struct is above
+   */
+  private static final int SIGNATURE_BITS = 28;
+  private static final long SIGNATURE_MASK = (1L << SIGNATURE_BITS) - 1;
+
+  /**
+   * Default number of cells per page: 8 MB
+   */
+  public static final int DEFAULT_PAGE_CELLS = 1 << 20;
+
+  private final int pageShift;
+  private final int pageMask;
+  private final List<LongBuffer> pages = new ArrayList<>();
+
+  /**
+   * Address of the next free cell
+   */
+  private long top = 0;
+
+  // Dictionary, on the heap
+
+  private final List<FunctorSignature> signatures = new ArrayList<>();
+  private final Map<FunctorSignature, Integer> signatureIds = new IdentityHashMap<>();
+  private final List<String> symbols = new ArrayList<>();
+  private final Map<String, Integer> symbolIds = new HashMap<>();
+  private final List<Object> objects = new ArrayList<>();
+  private final Map<Object, Integer> objectIds = new HashMap<>();
+
+  public FlatTermStore() {
+    this(DEFAULT_PAGE_CELLS);
+  }
+
+  /**
+   * @param pageCells Number of cells per page, a power of 2, also the maximal arity + 1 of compounds.
+   */
+  public FlatTermStore(int pageCells) {
+    if (pageCells < 4 || Integer.bitCount(pageCells) != 1) {
+      throw new IllegalArgumentException("Number of cells per page must be a power of 2, at least 4, was " + pageCells);
+    }
+    this.pageShift = Integer.numberOfTrailingZeros(pageCells);
+    this.pageMask = pageCells - 1;
+  }
+
+  // ---------------------------------------------------------------------------
+  // Adding
+  // ---------------------------------------------------------------------------
+
+  /**
+   * Copy a term into this store.
+   *
+   * @param struct
+   * @return Its address, to read it with {@link #view(long)} or {@link #toStruct(long)}
+   */
+  public long add(Struct<?> struct) {
+    final Map<Var<?>, Long> varAddresses = new IdentityHashMap<>();
+    final ArrayDeque<Object> pending = new ArrayDeque<>(); // Pairs of Struct and address
+    final long root = allocateCompound(struct);
+    pending.push(root);
+    pending.push(struct);
+    while (!pending.isEmpty()) {
+      final Struct<?> current = (Struct<?>) pending.pop();
+      final long address = (Long) pending.pop();
+      set(address, cell(TAG_FUNCTOR, ((current.getIndex() + 2L) << SIGNATURE_BITS) | signatureId(current.getSignature())));
+      for (int i = 0; i < current.getArity(); i++) {
+        final Object arg = current.getArg(i);
+        final long argCell;
+        if (arg instanceof Struct<?> child) {
+          final long childAddress = allocateCompound(child);
+          pending.push(childAddress);
+          pending.push(child);
+          argCell = cell(TAG_STRUCT, childAddress);
+        } else if (arg instanceof Var<?> var) {
+          argCell = var.isAnon() ? cell(TAG_ANON, 0) : cell(TAG_VAR, varAddresses.computeIfAbsent(var, this::allocateVar));
+        } else {
+          argCell = atomicCell(arg);
+        }
+        set(address + 1 + i, argCell);
+      }
+    }
+    return root;
+  }
+
+  private long atomicCell(Object value) {
+    if (value instanceof String atom) {
+      return cell(TAG_ATOM, symbolId(atom));
+    }
+    if (value instanceof Integer integer) {
+      return cell(TAG_INT, integer & 0xFFFFFFFFL);
+    }
+    if (value instanceof Long longValue && longValue >= MIN_INLINE_LONG && longValue <= MAX_INLINE_LONG) {
+      return cell(TAG_LONG, longValue & PAYLOAD_MASK);
+    }
+    if (value instanceof Double doubleValue) {
+      final long address = allocate(1);
+      set(address, Double.doubleToRawLongBits(doubleValue));
+      return cell(TAG_DOUBLE, address);
+    }
+    return cell(TAG_OBJECT, objectId(value));
+  }
+
+  private long allocateVar(Var<?> var) {
+    final long address = allocate(2);
+    set(address, objectId(var.getType() == null ? Object.class : var.getType()));
+    set(address + 1, ((long) symbolId(var.getName()) << 32) | (var.getIndex() & 0xFFFFFFFFL));
+    return address;
+  }
+
+  private long allocateCompound(Struct<?> struct) {
+    return allocate(1 + struct.getArity());
+  }
+
+  /**
+   * @return Address of nbCells contiguous cells, within a page
+   */
+  private long allocate(int nbCells) {
+    final int pageCells = this.pageMask + 1;
+    if (nbCells > pageCells) {
+      throw new InvalidTermException("Cannot store a compound of " + (nbCells - 1) + " arguments in pages of " + pageCells + " cells");
+    }
+    final long offsetInPage = this.top & this.pageMask;
+    if (offsetInPage != 0 && offsetInPage + nbCells > pageCells) {
+      this.top += pageCells - offsetInPage; // Skip the end of the page
+    }
+    final long address = this.top;
+    while ((int) ((address + nbCells - 1) >>> this.pageShift) >= this.pages.size()) {
+      this.pages.add(ByteBuffer.allocateDirect(pageCells * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer());
+    }
+    this.top += nbCells;
+    return address;
+  }
+
+  private int signatureId(FunctorSignature signature) {
+    return this.signatureIds.computeIfAbsent(signature, key -> {
+      if (this.signatures.size() > SIGNATURE_MASK) {
+        throw new InvalidTermException("Cannot store more than " + (SIGNATURE_MASK + 1) + " distinct functors");
+      }
+      this.signatures.add(key);
+      return this.signatures.size() - 1;
+    });
+  }
+
+  private int symbolId(String symbol) {
+    return this.symbolIds.computeIfAbsent(symbol, key -> {
+      this.symbols.add(key);
+      return this.symbols.size() - 1;
+    });
+  }
+
+  private int objectId(Object object) {
+    return this.objectIds.computeIfAbsent(object, key -> {
+      this.objects.add(key);
+      return this.objects.size() - 1;
+    });
+  }
+
+  // ---------------------------------------------------------------------------
+  // Reading
+  // ---------------------------------------------------------------------------
+
+  /**
+   * @param address As returned by {@link #add(Struct)}
+   * @return A read-only view, that does not materialize the term.
+   */
+  public FlatStruct view(long address) {
+    if (tag(get(address)) != TAG_FUNCTOR) {
+      throw new IllegalArgumentException("No compound at address " + address);
+    }
+    return new FlatStruct(this, address);
+  }
+
+  /**
+   * Convert back to a {@link Struct}, equal to the one added.
+   *
+   * @param address As returned by {@link #add(Struct)}
+   * @return A new Struct
+   */
+  public Struct<?> toStruct(long address) {
+    final FlatStruct root = view(address);
+    final Map<Long, Var<?>> vars = new HashMap<>();
+    // Post-order traversal with an explicit stack, so terms of any depth can be converted
+    final ArrayDeque<Frame> frames = new ArrayDeque<>();
+    frames.push(new Frame(root.getAddress(), signature(root.getAddress())));
+    Struct<?> converted = null;
+    while (!frames.isEmpty()) {
+      final Frame frame = frames.peek();
+      if (converted != null) {
+        frame.args[frame.next++] = converted;
+        converted = null;
+      }
+      while (frame.next < frame.args.length) {
+        final long argCell = get(frame.address + 1 + frame.next);
+        if (tag(argCell) == TAG_STRUCT) {
+          break;
+        }
+        frame.args[frame.next++] = argValue(argCell, vars);
+      }
+      if (frame.next < frame.args.length) {
+        final long child = payload(get(frame.address + 1 + frame.next));
+        frames.push(new Frame(child, signature(child)));
+      } else {
+        frames.pop();
+        converted = new Struct<>(frame.signature.getName(), frame.args);
+        converted.setIndex(structIndex(frame.address));
+      }
+    }
+    return converted;
+  }
+
+  private static final class Frame {
+    final long address;
+    final FunctorSignature signature;
+    final Object[] args;
+    int next = 0;
+
+    Frame(long address, FunctorSignature signature) {
+      this.address = address;
+      this.signature = signature;
+      this.args = new Object[signature.getArity()];
+    }
+  }
+
+  /**
+   * @return The value of an argument cell: a Java object, a {@link Var}, or a {@link FlatStruct} for compounds
+   */
+  Object argValue(long argCell, Map<Long, Var<?>> vars) {
+    final long payload = payload(argCell);
+    return switch (tag(argCell)) {
+      case TAG_ATOM -> this.symbols.get((int) payload);
+      case TAG_INT -> (int) payload;
+      case TAG_LONG -> (payload << (64 - TAG_SHIFT)) >> (64 - TAG_SHIFT); // Sign-extend
+      case TAG_DOUBLE -> Double.longBitsToDouble(get(payload));
+      case TAG_STRUCT -> new FlatStruct(this, payload);
+      case TAG_VAR -> vars == null ? newVar(payload) : vars.computeIfAbsent(payload, this::newVar);
+      case TAG_ANON -> Var.anon();
+      case TAG_OBJECT -> this.objects.get((int) payload);
+      default -> throw new IllegalStateException("Unexpected cell tag " + tag(argCell) + " in argument cell " + Long.toHexString(argCell));
+    };
+  }
+
+  private Var<?> newVar(long address) {
+    final Class<?> type = (Class<?>) this.objects.get((int) get(address));
+    final long nameAndIndex = get(address + 1);
+    final Var<?> var = new Var<>(type, this.symbols.get((int) (nameAndIndex >>> 32)));
+    var.setIndex((int) nameAndIndex);
+    return var;
+  }
+
+  FunctorSignature signature(long address) {
+    return this.signatures.get((int) (payload(get(address)) & SIGNATURE_MASK));
+  }
+
+  /**
+   * @return The index of the Struct whose functor cell is at address
+   */
+  int structIndex(long address) {
+    return (int) ((payload(get(address)) >>> SIGNATURE_BITS) - 2);
+  }
+
+  long get(long address) {
+    return this.pages.get((int) (address >>> this.pageShift)).get((int) (address & this.pageMask));
+  }
+
+  private void set(long address, long cell) {
+    this.pages.get((int) (address >>> this.pageShift)).put((int) (address & this.pageMask), cell);
+  }
+
+  static long cell(int tag, long payload) {
+    return ((long) tag << TAG_SHIFT) | payload;
+  }
+
+  static int tag(long cell) {
+    return (int) (cell >>> TAG_SHIFT);
+  }
+
+  static long payload(long cell) {
+    return cell & PAYLOAD_MASK;
+  }
+
+  // ---------------------------------------------------------------------------
+  // Accessors
+  // ---------------------------------------------------------------------------
+
+  /**
+   * @return Number of cells used, including those skipped at the end of pages
+   */
+  public long getNbCells() {
+    return this.top;
+  }
+
+  /**
+   * @return Number of bytes of direct memory allocated
+   */
+  public long getAllocatedBytes() {
+    return (long) this.pages.size() * (this.pageMask + 1) * Long.BYTES;
+  }
+
+  @Override
+  public String toString() {
+    return this.getClass().getSimpleName() + '(' + this.top + " cells, " + this.signatures.size() + " signatures, " + this.symbols.size() + " symbols)";
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The signature of a predicate or functor: its name and arity, as "name/arity" in Prolog.
+ * <p>
+ * Instances are canonical, obtained from a global registry with {@link #of(String, int)}: there is only one instance per
+ * (name, arity), so signatures can be compared by reference, or by their {@link #getId()}.
+ * Looking up an existing signature takes no lock and allocates nothing; only the first registration of a signature
+ * builds its text.
+ */
+public final class FunctorSignature implements Serializable {
+  @Serial
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Signatures of arity below this are stored in an array per name, others in {@link #LARGE_ARITIES}.
+   */
+  private static final int MAX_INDEXED_ARITY = 16;
+
+  private static final ConcurrentHashMap<String, FunctorSignature[]> BY_NAME = new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<LargeArityKey, FunctorSignature> LARGE_ARITIES = new ConcurrentHashMap<>();
+  private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+  private final String name; // A symbol, compare with ==
+  private final int arity;
+
+  /**
+   * Dense identifier, valid only within this JVM.
+   */
+  private final transient int id;
+
+  /**
+   * name/arity, a symbol
+   */
+  private final String text;
+
+  private FunctorSignature(String name, int arity) {
+    this.name = name;
+    this.arity = arity;
+    this.id = NEXT_ID.getAndIncrement();
+    this.text = SymbolTable.symbol(name + '/' + arity);
+  }
+
+  /**
+   * @param name
+   * @param arity
+   * @return The canonical signature
+   */
+  public static FunctorSignature of(String name, int arity) {
+    if (arity < MAX_INDEXED_ARITY) {
+      final FunctorSignature[] byArity = BY_NAME.get(name);
+      if (byArity != null && arity < byArity.length) {
+        final FunctorSignature found = byArity[arity];
+        if (found != null) {
+          return found;
+        }
+      }
+      return registerIndexed(name, arity);
+    }
+    return LARGE_ARITIES.computeIfAbsent(new LargeArityKey(name, arity), key -> new FunctorSignature(SymbolTable.symbol(name), arity));
+  }
+
+  /**
+   * Arrays in {@link #BY_NAME} are never modified once published, they are replaced by a larger copy.
+   */
+  private static FunctorSignature registerIndexed(String name, int arity) {
+    final FunctorSignature[] byArity = BY_NAME.compute(name, (key, existing) -> {
+      if (existing != null && arity < existing.length && existing[arity] != null) {
+        return existing; // Registered concurrently
+      }
+      final FunctorSignature[] extended = new FunctorSignature[Math.max(arity + 1, existing == null ? 0 : existing.length)];
+      if (existing != null) {
+        System.arraycopy(existing, 0, extended, 0, existing.length);
+      }
+      extended[arity] = new FunctorSignature(SymbolTable.symbol(name), arity);
+      return extended;
+    });
+    return byArity[arity];
+  }
+
+  // ---------------------------------------------------------------------------
+  // Accessors
+  // ---------------------------------------------------------------------------
+
+  /**
+   * @return The name, a symbol from the {@link SymbolTable}
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  public int getArity() {
+    return this.arity;
+  }
+
+  /**
+   * @return A dense identifier unique to this signature, valid only within this JVM.
+   */
+  public int getId() {
+    return this.id;
+  }
+
+  // ---------------------------------------------------------------------------
+  // Methods of java.lang.Object
+  // ---------------------------------------------------------------------------
+
+  /**
+   * @return name/arity, a symbol from the {@link SymbolTable}
+   */
+  @Override
+  public String toString() {
+    return this.text;
+  }
+
+  /**
+   * Preserve canonical instances when deserializing.
+   */
+  @Serial
+  private Object readResolve() {
+    return of(this.name, this.arity);
+  }
+
+  private record LargeArityKey(String name, int arity) {
+  }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import java.util.Arrays;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * A {@link Constant} of long values backed by a primitive array, with no boxing on the primitive methods
+ * {@link #toLongArray()}, {@link #toLongStream()} and {@link #containsLong(long)}.
+ * Membership is checked by binary search on a sorted copy, made on first use (or the values themselves if already sorted).
+ * Use {@link SimpleBindings#bindLongs(long...)} to instantiate.
+ */
+public final class LongConstant extends PrimitiveConstant<Long, long[]> {
+
+  LongConstant(long[] values) {
+    super(values, Long.class, "Longs");
+  }
+
+  // ---------------------------------------------------------------------------
+  // Primitive accessors
+  // ---------------------------------------------------------------------------
+
+  /**
+   * @return The values, not copied: do not modify.
+   */
+  public long[] toLongArray() {
+    return this.values;
+  }
+
+  public LongStream toLongStream() {
+    return Arrays.stream(this.values);
+  }
+
+  public boolean containsLong(long value) {
+    return Arrays.binarySearch(sorted(), value) >= 0;
+  }
+
+  @Override
+  boolean isSorted(long[] array) {
+    for (int i = 1; i < array.length; i++) {
+      if (array[i - 1] > array[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  long[] sortedCopy(long[] array) {
+    final long[] copy = array.clone();
+    Arrays.sort(copy);
+    return copy;
+  }
+
+  // ---------------------------------------------------------------------------
+  // Implementation of Constant
+  // ---------------------------------------------------------------------------
+
+  @Override
+  public boolean contains(Long value) {
+    return value != null && containsLong(value);
+  }
+
+  @Override
+  public Stream<Long> toStream() {
+    return toLongStream().boxed();
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import org.logic2j.engine.internal.OpenHashSet;
+
+/**
+ * Answers {@link Constant#contains(Object)} on an array of values: by a linear scan when there are few of them,
+ * otherwise with an {@link OpenHashSet} built on first use, or eagerly with {@link #build()}.
+ * The values are not copied: they must not be modified once the index is built.
+ */
+final class MembershipIndex {
+
+  /**
+   * Below this number of values a linear scan is as fast as hashing, and no index is built unless requested.
+   */
+  static final int THRESHOLD = 32;
+
+  private final Object[] values;
+
+  /**
+   * Lazily built, see {@link #index()}
+   */
+  private volatile OpenHashSet<Object> table;
+
+  MembershipIndex(Object[] values) {
+    this.values = values;
+  }
+
+  /**
+   * @param value
+   * @return true if value is equal to one of the values, false for null.
+   */
+  boolean contains(Object value) {
+    if (value == null) {
+      return false;
+    }
+    final OpenHashSet<Object> index = this.table;
+    if (index != null) {
+      return index.contains(value);
+    }
+    if (this.values.length < THRESHOLD) {
+      for (final Object candidate : this.values) {
+        if (value.equals(candidate)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    return index().contains(value);
+  }
+
+  /**
+   * Build the index now, whatever the number of values.
+   *
+   * @return this
+   * @throws IllegalArgumentException If there are more than {@link OpenHashSet#MAX_SIZE} values
+   */
+  MembershipIndex build() {
+    index();
+    return this;
+  }
+
+  boolean isBuilt() {
+    return this.table != null;
+  }
+
+  private OpenHashSet<Object> index() {
+    OpenHashSet<Object> index = this.table;
+    if (index == null) {
+      // Concurrent invocations may build it more than once, with the same result
+      index = new OpenHashSet<>(this.values.length);
+      for (final Object value : this.values) {
+        if (value != null) {
+          index.add(value);
+        }
+      }
+      this.table = index;
+    }
+    return index;
+  }
+
+}
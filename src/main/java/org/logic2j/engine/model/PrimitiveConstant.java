@@ -0,0 +1,101 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import java.lang.reflect.Array;
+import java.util.stream.Collectors;
+
+/**
+ * Common part of the {@link Constant}s backed by an array of primitive values, see {@link IntConstant},
+ * {@link LongConstant} and {@link DoubleConstant}.
+ *
+ * @param <T> Type of boxed values
+ * @param <A> Type of the primitive array, such as int[]
+ */
+abstract class PrimitiveConstant<T, A> implements Constant<T> {
+  final A values;
+  private final Class<T> type;
+  private final String label;
+
+  /**
+   * Lazily sorted values, see {@link #sorted()}
+   */
+  private volatile A sorted;
+
+  PrimitiveConstant(A values, Class<T> type, String label) {
+    this.values = values;
+    this.type = type;
+    this.label = label;
+  }
+
+  /**
+   * @return The values sorted, for binary searches: a copy made on first use, or the values themselves if already sorted.
+   */
+  final A sorted() {
+    A sortedValues = this.sorted;
+    if (sortedValues == null) {
+      sortedValues = isSorted(this.values) ? this.values : sortedCopy(this.values);
+      this.sorted = sortedValues;
+    }
+    return sortedValues;
+  }
+
+  abstract boolean isSorted(A array);
+
+  abstract A sortedCopy(A array);
+
+  // ---------------------------------------------------------------------------
+  // Implementation of Constant
+  // ---------------------------------------------------------------------------
+
+  @Override
+  public Class<T> getType() {
+    return this.type;
+  }
+
+  @Override
+  public boolean isUniqueFeed() {
+    return false;
+  }
+
+  @Override
+  public long size() {
+    return Array.getLength(this.values);
+  }
+
+  @Override
+  public T[] toArray() {
+    //noinspection unchecked
+    return toStream().toArray(length -> (T[]) Array.newInstance(this.type, length));
+  }
+
+  @Override
+  public T toScalar() {
+    final int length = Array.getLength(this.values);
+    if (length != 1) {
+      throw new IllegalStateException("Trying to get scalar from array of " + length + " elements");
+    }
+    return this.type.cast(Array.get(this.values, 0));
+  }
+
+  @Override
+  public String toString() {
+    return toStream().map(String::valueOf).collect(Collectors.joining(",", this.label + "<", ">"));
+  }
+
+}
@@ -0,0 +1,218 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Records the elements of a single-use source as they are pulled, so that they can be traversed again any number of times.
+ * Traversals only pull from the source when they go past the elements already recorded: a traversal that stops early
+ * does not consume the rest of the source.
+ * <p>
+ * Elements are stored in fixed-size chunks, so the buffer never copies them when growing.
+ * Pulling from the source is synchronized, reading recorded elements takes no lock.
+ *
+ * @param <T> Type of elements
+ */
+final class ReplayBuffer<T> {
+  private static final int CHUNK_SHIFT = 10;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  /**
+   * Guarded by this, null once exhausted
+   */
+  private Iterator<T> source;
+
+  /**
+   * Invoked once the source is exhausted, guarded by this
+   */
+  private Runnable onExhausted;
+
+  /**
+   * Always assigned before {@link #size} is incremented, so readers of size see enough chunks.
+   */
+  private volatile Object[][] chunks = new Object[4][];
+  private volatile int size = 0;
+  private volatile boolean exhausted = false;
+
+  /**
+   * @param source
+   * @param onExhausted Invoked once the source is exhausted, to release its resources
+   */
+  ReplayBuffer(Iterator<T> source, Runnable onExhausted) {
+    this.source = source;
+    this.onExhausted = onExhausted;
+  }
+
+  /**
+   * @return Number of elements recorded so far, see {@link #drain()}
+   */
+  int size() {
+    return this.size;
+  }
+
+  boolean isExhausted() {
+    return this.exhausted;
+  }
+
+  /**
+   * @param index Must be less than {@link #size()}
+   */
+  T get(int index) {
+    //noinspection unchecked
+    return (T) this.chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+  }
+
+  /**
+   * Pull from the source until the element at index is recorded, or the source is exhausted.
+   *
+   * @param index
+   * @return true if there is an element at index
+   */
+  boolean reach(int index) {
+    if (index < this.size) {
+      return true;
+    }
+    if (this.exhausted) {
+      return false;
+    }
+    synchronized (this) {
+      while (this.size <= index && this.source != null) {
+        if (this.source.hasNext()) {
+          append(this.source.next());
+        } else {
+          this.source = null;
+          this.exhausted = true;
+          final Runnable release = this.onExhausted;
+          this.onExhausted = null;
+          release.run();
+        }
+      }
+      return index < this.size;
+    }
+  }
+
+  /**
+   * Pull all remaining elements from the source.
+   *
+   * @return this
+   */
+  ReplayBuffer<T> drain() {
+    reach(Integer.MAX_VALUE - 1);
+    return this;
+  }
+
+  /**
+   * @return A new traversal from the first element, pulling from the source only past the recorded elements.
+   * Once the source is exhausted, it is {@link Spliterator#SIZED} and splits evenly for parallel streams.
+   */
+  Spliterator<T> spliterator() {
+    if (this.exhausted) {
+      return new RangeSpliterator(0, this.size);
+    }
+    return new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED) {
+      private int index = 0;
+
+      @Override
+      public boolean tryAdvance(Consumer<? super T> action) {
+        if (!reach(this.index)) {
+          return false;
+        }
+        action.accept(get(this.index++));
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Traversal of recorded elements between two indexes.
+   */
+  private final class RangeSpliterator implements Spliterator<T> {
+    private int index;
+    private final int fence;
+
+    RangeSpliterator(int index, int fence) {
+      this.index = index;
+      this.fence = fence;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      if (this.index >= this.fence) {
+        return false;
+      }
+      action.accept(get(this.index++));
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+      final int end = this.fence;
+      for (int i = this.index; i < end; i++) {
+        action.accept(get(i));
+      }
+      this.index = end;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      final int from = this.index;
+      final int mid = (from + this.fence) >>> 1;
+      if (from >= mid) {
+        return null;
+      }
+      this.index = mid;
+      return new RangeSpliterator(from, mid);
+    }
+
+    @Override
+    public long estimateSize() {
+      return this.fence - this.index;
+    }
+
+    @Override
+    public int characteristics() {
+      return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.IMMUTABLE;
+    }
+  }
+
+  private void append(T element) {
+    final int index = this.size;
+    if (index == Integer.MAX_VALUE - 1) {
+      throw new IllegalStateException("Cannot record more than " + index + " elements");
+    }
+    Object[][] current = this.chunks;
+    final int chunkIndex = index >>> CHUNK_SHIFT;
+    if (chunkIndex == current.length) {
+      final Object[][] extended = new Object[current.length * 2][];
+      System.arraycopy(current, 0, extended, 0, current.length);
+      current = extended;
+    }
+    if (current[chunkIndex] == null) {
+      current[chunkIndex] = new Object[CHUNK_SIZE];
+    }
+    current[chunkIndex][index & CHUNK_MASK] = element;
+    this.chunks = current;
+    this.size = index + 1;
+  }
+
+}
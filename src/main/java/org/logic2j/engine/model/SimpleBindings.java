@@ -24,16 +24,22 @@ import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 /**
  * Static factories for {@link Constant}, used to provide data to predicates: one or several values of a given type.
- * Can provide values from arrays, {@link Iterator}s or {@link Stream}s.
+ * Can provide values from arrays, {@link Iterator}s or {@link Stream}s, and from primitive arrays or streams without boxing.
  * Only one method: {@link #empty(Class)} allows empty content. Other methods require at least one element to determine the data type.
  * TODO: factories for collections should maybe ensure the data type by scanning all elements, not only checking on the first?
  */
@@ -58,6 +64,9 @@ public class SimpleBindings {
           case Double v -> bind(v);
           case Float v -> bind(v);
           case Boolean b -> bind(b);
+          case int[] ints -> bindInts(ints);
+          case long[] longs -> bindLongs(longs);
+          case double[] doubles -> bindDoubles(doubles);
           case Binding<?> binding -> binding;  // Already a Binding
           default ->
                   throw new IllegalArgumentException("Object " + any + " of " + any.getClass() + " cannot be converted to a Binding");
@@ -157,14 +166,47 @@ public class SimpleBindings {
   }
 
   /**
-   * Provide values as an array or varargs
+   * Provide values as an array or varargs.
+   * When there are many of them, {@link Constant#contains(Object)} uses a hash index built on first use.
    *
-   * @param values
+   * @param values Not copied: do not modify afterwards
    * @param <T>
    * @return A {@link Constant} that supplies several values.
    */
   @SafeVarargs
+  @SuppressWarnings("varargs") // The array is only read, and exposed as T[] like any varargs array
   public static <T> Constant<T> bind(T... values) {
+    return arrayConstant(new MembershipIndex(values), values);
+  }
+
+  /**
+   * Provide values as an array or varargs, and index them immediately for {@link Constant#contains(Object)}, whatever their number.
+   *
+   * @param values Not copied: do not modify afterwards
+   * @param <T>
+   * @return A {@link Constant} that supplies several values.
+   */
+  @SafeVarargs
+  @SuppressWarnings("varargs") // The array is only read, and exposed as T[] like any varargs array
+  public static <T> Constant<T> bindIndexed(T... values) {
+    return arrayConstant(new MembershipIndex(values).build(), values);
+  }
+
+  /**
+   * Snapshot the values of a Collection and index them immediately for {@link Constant#contains(Object)}.
+   * Unlike {@link #bind(Collection)}, later modifications of the collection are not reflected.
+   *
+   * @param coll
+   * @param <T>
+   * @return A {@link Constant} that supplies several values.
+   */
+  public static <T> Constant<T> bindIndexed(Collection<T> coll) {
+    final List<T> snapshot = Collections.unmodifiableList(new ArrayList<>(coll));
+    final MembershipIndex index = new MembershipIndex(snapshot.toArray()).build();
+    return collectionConstant(snapshot, index::contains);
+  }
+
+  private static <T> Constant<T> arrayConstant(MembershipIndex index, T[] values) {
     return new ConstantBase<>() {
       @Override
       public boolean isUniqueFeed() {
@@ -208,12 +250,7 @@ public class SimpleBindings {
 
       @Override
       public boolean contains(T value) {
-        for (T value1 : values) {
-          if (value.equals(value1)) {
-            return true;
-          }
-        }
-        return false;
+        return index.contains(value);
       }
     };
   }
@@ -226,6 +263,13 @@ public class SimpleBindings {
    * @return A {@link Constant} that supplies several values.
    */
   public static <T> Constant<T> bind(Collection<T> coll) {
+    return collectionConstant(coll, coll::contains);
+  }
+
+  /**
+   * @param contains Implementation of {@link Constant#contains(Object)}
+   */
+  private static <T> Constant<T> collectionConstant(Collection<T> coll, Predicate<Object> contains) {
     return new ConstantBase<>() {
       @Override
       public boolean isUniqueFeed() {
@@ -269,140 +313,183 @@ public class SimpleBindings {
 
       @Override
       public boolean contains(T value) {
-        return coll.contains(value);
+        return contains.test(value);
       }
     };
   }
 
   /**
-   * Consume the stream immediately and only once, cache all data in this object.
+   * Pull values from the stream only when needed, and record them so that they can be traversed again:
+   * all methods of the returned {@link Constant} can be invoked any number of times, see {@link Constant#isUniqueFeed()}.
+   * {@link Constant#toStream()} pulls values as they are consumed, {@link Constant#size()} and {@link Constant#contains(Object)}
+   * pull all of them.
    *
-   * @param stream
+   * @param stream Closed once consumed
    * @param <T>
-   * @return
+   * @return A multi-pass {@link Constant}
    */
   public static <T> Constant<T> bind(Stream<T> stream) {
+    return replayable(new ReplayBuffer<>(stream.iterator(), stream::close), "Stream");
+  }
+
+  /**
+   * Pull values from the Iterator only when needed, and record them so that they can be traversed again,
+   * see {@link #bind(Stream)}.
+   *
+   * @param iterator
+   * @param <T>
+   * @return A multi-pass {@link Constant}
+   */
+  public static <T> Constant<T> bind(Iterator<T> iterator) {
+    return replayable(new ReplayBuffer<>(iterator, () -> {
+    }), "Iterator");
+  }
+
+  private static <T> Constant<T> replayable(ReplayBuffer<T> buffer, String sourceDescription) {
     return new ConstantBase<>() {
-      private T[] data = null;
+      /**
+       * Once the buffer is drained
+       */
+      private volatile T[] data = null;
+      private volatile MembershipIndex index = null;
 
       @Override
       public boolean isUniqueFeed() {
-        return data == null;
+        return false;
+      }
+
+      @Override
+      public Class<T> getType() {
+        if (!buffer.reach(0)) {
+          throw new IllegalStateException("Empty " + this + ", cannot determine data type of instances.");
+        }
+        final T first = buffer.get(0);
+        if (first == null) {
+          throw new IllegalStateException("Cannot determine type from " + this + ", first element is null");
+        }
+        return (Class<T>) first.getClass();
       }
 
       @Override
       public long size() {
-        consumeNow();
-        return this.data.length;
+        return buffer.drain().size();
       }
 
       @Override
       public T[] toArray() {
-        consumeNow();
-        return data;
+        T[] array = this.data;
+        if (array == null) {
+          final int length = buffer.drain().size();
+          array = genericArray(getType(), length);
+          for (int i = 0; i < length; i++) {
+            array[i] = buffer.get(i);
+          }
+          this.data = array;
+        }
+        return array;
       }
 
       @Override
       public T toScalar() {
-        consumeNow();
-        return Arrays.stream(this.data).findFirst().orElseThrow(() -> new IllegalStateException("Empty stream cannot provide a scalar form it"));
+        if (buffer.reach(1)) {
+          throw new IllegalStateException("Trying to get scalar from " + this + " that has more than one element");
+        }
+        if (!buffer.reach(0)) {
+          throw new IllegalStateException("Empty " + this + " cannot provide a scalar from it");
+        }
+        return buffer.get(0);
       }
 
       @Override
       public boolean contains(T value) {
-        consumeNow();
-        return Arrays.asList(this.data).contains(value);
+        MembershipIndex membership = this.index;
+        if (membership == null) {
+          membership = new MembershipIndex(toArray());
+          this.index = membership;
+        }
+        return membership.contains(value);
       }
 
       @Override
       public Stream<T> toStream() {
-        return stream;
-      }
-
-      private void consumeNow() {
-        if (this.data == null) {
-          final Object[] asObjects = stream.toArray(Object[]::new);
-          if (asObjects.length == 0) {
-            throw new IllegalArgumentException("Empty SimpleBinding stream, cannot determine data type of instances.");
-          }
-          final Class<T> elementClass = (Class<T>) asObjects[0].getClass();
-          this.data = Arrays.stream(asObjects).toArray(n -> (T[]) Array.newInstance(elementClass, n));
-        }
+        return StreamSupport.stream(buffer.spliterator(), false);
       }
 
       @Override
       public String toString() {
-        return "Constant>Stream(values-not-shown)";
+        return "Constant>" + sourceDescription + "(values-not-shown)";
       }
     };
   }
 
   /**
-   * Consume the Iterator immediately and only once, cache all data in this object.
+   * Bind values from a stream without recording them: they can be traversed only once, see {@link Constant#isUniqueFeed()}.
+   * Use this when a single traversal is needed, to avoid holding values in memory.
    *
-   * @param iterator
+   * @param stream
+   * @param type   Of values
    * @param <T>
-   * @return
+   * @return A single-pass {@link Constant}
    */
-  public static <T> Constant<T> bind(Iterator<T> iterator) {
+  public static <T> Constant<T> bindOnce(Stream<T> stream, Class<T> type) {
     return new ConstantBase<>() {
-      private T[] data = null;
+      private final AtomicBoolean consumed = new AtomicBoolean();
 
       @Override
       public boolean isUniqueFeed() {
-        return data == null;
+        return true;
+      }
+
+      @Override
+      public Class<T> getType() {
+        return type;
       }
 
       @Override
       public long size() {
-        consumeNow();
-        return this.data.length;
+        try (Stream<T> values = consume()) {
+          return values.count();
+        }
       }
 
       @Override
-      public T[] toArray() {
-        consumeNow();
-        return data;
+      public boolean contains(T value) {
+        try (Stream<T> values = consume()) {
+          return value != null && values.anyMatch(value::equals);
+        }
       }
 
       @Override
-      public T toScalar() {
-        consumeNow();
-        return Arrays.stream(this.data).findFirst().orElseThrow(() -> new IllegalStateException("Empty stream cannot provide a scalar form it"));
+      public T[] toArray() {
+        try (Stream<T> values = consume()) {
+          return values.toArray(n -> genericArray(type, n));
+        }
       }
 
       @Override
-      public boolean contains(T value) {
-        consumeNow();
-        for (T elem : this.data) {
-          if (value.equals(elem)) {
-            return true;
-          }
+      public T toScalar() {
+        final T[] values = toArray();
+        if (values.length != 1) {
+          throw new IllegalStateException("Trying to get scalar from " + values.length + " elements of " + this);
         }
-        return false;
+        return values[0];
       }
 
       @Override
       public Stream<T> toStream() {
-        final Iterable<T> iterable = () -> iterator;
-        return StreamSupport.stream(iterable.spliterator(), false);
+        return consume();
       }
 
-      private void consumeNow() {
-        if (this.data == null) {
-          final List<T> coll = new ArrayList<>();
-          iterator.forEachRemaining(coll::add);
-          if (coll.isEmpty()) {
-            throw new IllegalArgumentException("Empty Constant iterator, cannot determine data type of instances.");
-          }
-          final Class<T> elementType = (Class<T>) coll.getFirst().getClass();
-          this.data = coll.toArray(n -> (T[]) Array.newInstance(elementType, n));
+      private Stream<T> consume() {
+        if (this.consumed.getAndSet(true)) {
+          throw new IllegalStateException(this + " is a unique feed and was already consumed");
         }
+        return stream;
       }
 
       @Override
       public String toString() {
-        return "Constant>Iterator(values-not-shown)";
+        return "Constant>Once(" + type.getSimpleName() + ", values-not-shown)";
       }
     };
   }
@@ -411,6 +498,100 @@ public class SimpleBindings {
     return bind(iterable.iterator());
   }
 
+  /**
+   * Consume the stream on first access, keeping at most {@link SpillingConstant#DEFAULT_MEMORY_WINDOW} values on the heap
+   * and writing the others to a temporary file. The values can then be traversed any number of times.
+   *
+   * @param stream Closed once consumed, or when the Constant is closed
+   * @param codec  To write and read the values that do not fit in memory, also determines their type
+   * @param <T>
+   * @return A {@link SpillingConstant}, close it to delete its temporary file.
+   */
+  public static <T> SpillingConstant<T> bindSpilling(Stream<T> stream, SpillingConstant.Codec<T> codec) {
+    return bindSpilling(stream, codec, SpillingConstant.DEFAULT_MEMORY_WINDOW);
+  }
+
+  /**
+   * @param stream       Closed once consumed, or when the Constant is closed
+   * @param codec        To write and read the values that do not fit in memory, also determines their type
+   * @param memoryWindow Maximal number of values kept on the heap
+   * @param <T>
+   * @return A {@link SpillingConstant}, see {@link #bindSpilling(Stream, SpillingConstant.Codec)}
+   */
+  public static <T> SpillingConstant<T> bindSpilling(Stream<T> stream, SpillingConstant.Codec<T> codec, int memoryWindow) {
+    return new SpillingConstant<>(stream, codec, memoryWindow);
+  }
+
+  /**
+   * @param iterator
+   * @param codec        To write and read the values that do not fit in memory, also determines their type
+   * @param memoryWindow Maximal number of values kept on the heap
+   * @param <T>
+   * @return A {@link SpillingConstant}, see {@link #bindSpilling(Stream, SpillingConstant.Codec)}
+   */
+  public static <T> SpillingConstant<T> bindSpilling(Iterator<T> iterator, SpillingConstant.Codec<T> codec, int memoryWindow) {
+    final Iterable<T> iterable = () -> iterator;
+    return bindSpilling(StreamSupport.stream(iterable.spliterator(), false), codec, memoryWindow);
+  }
+
+  // ---------------------------------------------------------------------------
+  // Primitive values, without boxing
+  // ---------------------------------------------------------------------------
+
+  /**
+   * @param values Not copied: do not modify afterwards
+   * @return A {@link Constant} backed by the primitive array
+   */
+  public static IntConstant bindInts(int... values) {
+    return new IntConstant(values);
+  }
+
+  /**
+   * Consume the stream immediately.
+   *
+   * @param stream
+   * @return A {@link Constant} backed by a primitive array
+   */
+  public static IntConstant bindInts(IntStream stream) {
+    return new IntConstant(stream.toArray());
+  }
+
+  /**
+   * @param values Not copied: do not modify afterwards
+   * @return A {@link Constant} backed by the primitive array
+   */
+  public static LongConstant bindLongs(long... values) {
+    return new LongConstant(values);
+  }
+
+  /**
+   * Consume the stream immediately.
+   *
+   * @param stream
+   * @return A {@link Constant} backed by a primitive array
+   */
+  public static LongConstant bindLongs(LongStream stream) {
+    return new LongConstant(stream.toArray());
+  }
+
+  /**
+   * @param values Not copied: do not modify afterwards
+   * @return A {@link Constant} backed by the primitive array
+   */
+  public static DoubleConstant bindDoubles(double... values) {
+    return new DoubleConstant(values);
+  }
+
+  /**
+   * Consume the stream immediately.
+   *
+   * @param stream
+   * @return A {@link Constant} backed by a primitive array
+   */
+  public static DoubleConstant bindDoubles(DoubleStream stream) {
+    return new DoubleConstant(stream.toArray());
+  }
+
   /**
    * Helper class for the anonymous classes uses internally here.
    *
@@ -0,0 +1,518 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A {@link Constant} fed from a {@link Stream} or {@link Iterator} that may not fit in memory: the first values are kept
+ * on the heap, up to a window of a given number of values, and the following ones are encoded with a {@link Codec} into
+ * a temporary file, read back through memory mappings.
+ * <p>
+ * The source is consumed only once, on first access, and the values can then be traversed again any number of times,
+ * with {@link #toStream()}; {@link #size()} does not hold values on the heap. Only {@link #toArray()} and {@link #toList()}
+ * load all of them. The temporary file is deleted by {@link #close()}, or when this object is garbage-collected.
+ * Use {@link SimpleBindings#bindSpilling(Stream, Codec)} to instantiate.
+ *
+ * @param <T> Type of values
+ */
+public final class SpillingConstant<T> implements Constant<T>, AutoCloseable {
+
+  /**
+   * Default number of values kept on the heap
+   */
+  public static final int DEFAULT_MEMORY_WINDOW = 1 << 16;
+
+  /**
+   * The temporary file is mapped in regions of about this size; a MappedByteBuffer cannot exceed 2 GB.
+   */
+  private static final long REGION_BYTES = 1L << 28;
+
+  private static final Cleaner CLEANER = Cleaner.create();
+
+  /**
+   * Encodes values to, and decodes them from, the temporary file.
+   *
+   * @param <T>
+   */
+  public interface Codec<T> {
+    Class<T> getType();
+
+    void write(DataOutput out, T value) throws IOException;
+
+    T read(DataInput in) throws IOException;
+
+    static Codec<String> strings() {
+      return of(String.class, DataOutput::writeUTF, DataInput::readUTF);
+    }
+
+    static Codec<Integer> integers() {
+      return of(Integer.class, DataOutput::writeInt, DataInput::readInt);
+    }
+
+    static Codec<Long> longs() {
+      return of(Long.class, DataOutput::writeLong, DataInput::readLong);
+    }
+
+    static Codec<Double> doubles() {
+      return of(Double.class, DataOutput::writeDouble, DataInput::readDouble);
+    }
+
+    /**
+     * Generic but slow and verbose: each value is written with its own {@link ObjectOutputStream}.
+     */
+    static <T extends Serializable> Codec<T> serializable(Class<T> type) {
+      return of(type, (out, value) -> {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+          objects.writeObject(value);
+        }
+        out.writeInt(bytes.size());
+        out.write(bytes.toByteArray());
+      }, in -> {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+          return type.cast(objects.readObject());
+        } catch (ClassNotFoundException e) {
+          throw new IOException("Cannot decode spilled value", e);
+        }
+      });
+    }
+
+    /**
+     * @return A Codec from functions, typically method references to {@link DataOutput} and {@link DataInput}
+     */
+    static <T> Codec<T> of(Class<T> type, Writer<T> writer, Reader<T> reader) {
+      return new Codec<>() {
+        @Override
+        public Class<T> getType() {
+          return type;
+        }
+
+        @Override
+        public void write(DataOutput out, T value) throws IOException {
+          writer.write(out, value);
+        }
+
+        @Override
+        public T read(DataInput in) throws IOException {
+          return reader.read(in);
+        }
+      };
+    }
+
+    interface Writer<T> {
+      void write(DataOutput out, T value) throws IOException;
+    }
+
+    interface Reader<T> {
+      T read(DataInput in) throws IOException;
+    }
+  }
+
+  private final Codec<T> codec;
+  private final int memoryWindow;
+
+  /**
+   * Guarded by this, null once consumed.
+   */
+  private Stream<T> stream;
+  private Iterator<T> source;
+
+  // The following are only written while consuming the source, under lock of this
+
+  private T[] window;
+  private final List<Region> regions = new ArrayList<>();
+  private long size = 0;
+  private TempFile spill = null;
+  private Cleaner.Cleanable cleanable = null;
+  private MembershipIndex windowIndex;
+
+  /**
+   * Why the source could not be consumed, then this Constant can no longer be used.
+   */
+  private Throwable failure = null;
+
+  SpillingConstant(Stream<T> stream, Codec<T> codec, int memoryWindow) {
+    if (memoryWindow < 0) {
+      throw new IllegalArgumentException("Memory window cannot be negative: " + memoryWindow);
+    }
+    this.stream = stream;
+    this.source = stream.iterator();
+    this.codec = codec;
+    this.memoryWindow = memoryWindow;
+  }
+
+  // ---------------------------------------------------------------------------
+  // Consumption of the source
+  // ---------------------------------------------------------------------------
+
+  private synchronized void consumeNow() {
+    if (this.failure != null) {
+      throw new IllegalStateException("Cannot access " + this + ", its source could not be consumed", this.failure);
+    }
+    if (this.source == null) {
+      if (this.window == null) {
+        throw new IllegalStateException("Cannot access " + this + " after it was closed");
+      }
+      return;
+    }
+    final List<T> inMemory = new ArrayList<>();
+    try {
+      while (this.source.hasNext() && inMemory.size() < this.memoryWindow) {
+        inMemory.add(nonNull(this.source.next()));
+      }
+      if (this.source.hasNext()) {
+        spillRemaining();
+      }
+    } catch (IOException e) {
+      fail(e);
+      throw new UncheckedIOException("Could not spill values of " + this + " to disk", e);
+    } catch (RuntimeException | Error e) {
+      // Whatever the source or the codec threw, never expose part of the values
+      fail(e);
+      throw e;
+    }
+    this.window = inMemory.toArray(genericArray(0));
+    this.windowIndex = new MembershipIndex(this.window);
+    this.size += this.window.length;
+    this.stream.close(); // Release the underlying resources, such as a cursor
+    this.stream = null;
+    this.source = null;
+  }
+
+  private void spillRemaining() throws IOException {
+    this.spill = new TempFile(Files.createTempFile("logic2j-constant-", ".bin"));
+    this.cleanable = CLEANER.register(this, this.spill);
+    try (CountingOutputStream counting = new CountingOutputStream(Files.newOutputStream(this.spill.path))) {
+      final DataOutputStream out = new DataOutputStream(counting);
+      long regionStart = 0;
+      long regionCount = 0;
+      while (this.source.hasNext()) {
+        this.codec.write(out, nonNull(this.source.next()));
+        regionCount++;
+        if (counting.count - regionStart >= REGION_BYTES) {
+          this.regions.add(new Region(regionStart, counting.count - regionStart, regionCount));
+          this.size += regionCount;
+          regionStart = counting.count;
+          regionCount = 0;
+        }
+      }
+      out.flush();
+      if (regionCount > 0) {
+        this.regions.add(new Region(regionStart, counting.count - regionStart, regionCount));
+        this.size += regionCount;
+      }
+    }
+  }
+
+  private void fail(Throwable e) {
+    this.failure = e;
+    this.regions.clear();
+    this.size = 0;
+    try {
+      close();
+    } catch (RuntimeException suppressed) {
+      e.addSuppressed(suppressed);
+    }
+  }
+
+  private T nonNull(T value) {
+    if (value == null) {
+      throw new IllegalArgumentException("Cannot bind null values in " + this);
+    }
+    return value;
+  }
+
+  /**
+   * Delete the temporary file, if any, and close the source stream if it was not consumed yet
+   * (releasing its cursor or file); this Constant can no longer be used.
+   */
+  @Override
+  public synchronized void close() {
+    final Stream<T> unconsumed = this.stream;
+    this.stream = null;
+    this.source = null;
+    this.window = null;
+    if (this.cleanable != null) {
+      this.cleanable.clean();
+      this.cleanable = null;
+    }
+    if (unconsumed != null) {
+      unconsumed.close();
+    }
+  }
+
+  /**
+   * @return true if some values were written to the temporary file.
+   */
+  public boolean isSpilled() {
+    consumeNow();
+    return !this.regions.isEmpty();
+  }
+
+  // ---------------------------------------------------------------------------
+  // Implementation of Constant
+  // ---------------------------------------------------------------------------
+
+  @Override
+  public Class<T> getType() {
+    return this.codec.getType();
+  }
+
+  /**
+   * @return false: the source is consumed only once, and the values can be traversed again.
+   */
+  @Override
+  public boolean isUniqueFeed() {
+    return false;
+  }
+
+  @Override
+  public long size() {
+    consumeNow();
+    return this.size;
+  }
+
+  /**
+   * Values kept on the heap are found through an index, but spilled values are decoded and scanned
+   * sequentially from the temporary file on every invocation.
+   */
+  @Override
+  public boolean contains(T value) {
+    consumeNow();
+    if (this.windowIndex.contains(value)) {
+      return true;
+    }
+    return value != null && !this.regions.isEmpty() && spilledValues().anyMatch(value::equals);
+  }
+
+  /**
+   * Load all values on the heap, avoid on large data.
+   */
+  @Override
+  public T[] toArray() {
+    final long length = size();
+    if (length > Integer.MAX_VALUE - 8) {
+      throw new IllegalStateException("Too many values to fit in an array: " + length);
+    }
+    return toStream().toArray(this::genericArray);
+  }
+
+  @Override
+  public T toScalar() {
+    final long length = size();
+    if (length != 1) {
+      throw new IllegalStateException("Trying to get scalar from " + length + " elements");
+    }
+    return this.window.length > 0 ? this.window[0] : spilledValues().findFirst().orElseThrow();
+  }
+
+  /**
+   * @return A new Stream over all values, spilled ones are decoded as they are pulled.
+   */
+  @Override
+  public Stream<T> toStream() {
+    consumeNow();
+    final Stream<T> inMemory = Arrays.stream(this.window);
+    return this.regions.isEmpty() ? inMemory : Stream.concat(inMemory, spilledValues());
+  }
+
+  private Stream<T> spilledValues() {
+    return StreamSupport.stream(new SpilledSpliterator(0, this.regions.size()), false);
+  }
+
+  /**
+   * Decodes the values of a range of regions, splits by regions so that each is mapped and decoded by a single thread.
+   */
+  private final class SpilledSpliterator implements Spliterator<T> {
+    private int region;
+    private final int fence;
+    private long remaining;
+    private DataInputStream in = null; // Of the current region, null until started
+    private long remainingInRegion = 0;
+
+    SpilledSpliterator(int region, int fence) {
+      this.region = region;
+      this.fence = fence;
+      for (int i = region; i < fence; i++) {
+        this.remaining += SpillingConstant.this.regions.get(i).count;
+      }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      if (this.remaining == 0) {
+        return false;
+      }
+      if (this.remainingInRegion == 0) {
+        final Region next = SpillingConstant.this.regions.get(this.region++);
+        this.in = open(next);
+        this.remainingInRegion = next.count;
+      }
+      this.remaining--;
+      this.remainingInRegion--;
+      try {
+        action.accept(SpillingConstant.this.codec.read(this.in));
+      } catch (IOException e) {
+        throw new UncheckedIOException("Could not decode values spilled by " + SpillingConstant.this, e);
+      }
+      return true;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      final int mid = (this.region + this.fence) >>> 1;
+      if (this.in != null || this.region >= mid) {
+        return null;
+      }
+      final SpilledSpliterator prefix = new SpilledSpliterator(this.region, mid);
+      this.region = mid;
+      this.remaining -= prefix.remaining;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return this.remaining;
+    }
+
+    @Override
+    public int characteristics() {
+      return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+    }
+  }
+
+  private DataInputStream open(Region region) {
+    try (FileChannel channel = FileChannel.open(this.spill.path, StandardOpenOption.READ)) {
+      return new DataInputStream(new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, region.offset, region.length)));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read values spilled by " + this, e);
+    }
+  }
+
+  private T[] genericArray(int length) {
+    //noinspection unchecked
+    return (T[]) Array.newInstance(getType(), length);
+  }
+
+  @Override
+  public String toString() {
+    return "Constant>Spilling(" + getType().getSimpleName() + ", values-not-shown)";
+  }
+
+  // ---------------------------------------------------------------------------
+  // Support
+  // ---------------------------------------------------------------------------
+
+  /**
+   * A part of the temporary file that is mapped at once, always starts on a value boundary.
+   */
+  private record Region(long offset, long length, long count) {
+  }
+
+  /**
+   * Deletes the temporary file when cleaned, must not reference its {@link SpillingConstant}.
+   */
+  private record TempFile(Path path) implements Runnable {
+    @Override
+    public void run() {
+      try {
+        Files.deleteIfExists(this.path);
+      } catch (IOException e) {
+        this.path.toFile().deleteOnExit();
+      }
+    }
+  }
+
+  private static final class CountingOutputStream extends BufferedOutputStream {
+    private long count = 0;
+
+    CountingOutputStream(OutputStream out) {
+      super(out, 1 << 16);
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+      super.write(b);
+      this.count++;
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+      super.write(b, off, len);
+      this.count += len;
+    }
+  }
+
+  private static final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (!this.buffer.hasRemaining()) {
+        return -1;
+      }
+      final int n = Math.min(len, this.buffer.remaining());
+      this.buffer.get(b, off, n);
+      return n;
+    }
+  }
+
+}
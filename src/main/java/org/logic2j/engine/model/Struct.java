@@ -20,10 +20,10 @@ package org.logic2j.engine.model;
 import static org.logic2j.engine.model.TermApiLocator.termApi;
 
 import java.io.Serial;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
-import java.util.Objects;
 
 import org.logic2j.engine.exception.InvalidTermException;
 import org.logic2j.engine.visitor.TermVisitor;
@@ -87,28 +87,78 @@ public class Struct<T> extends Term implements Cloneable {
 
     private static final Object[] EMPTY_ARGS_ARRAY = new Object[0];
 
+    /**
+     * Canonical instances of ground Structs, see {@link #interned(String, Object...)}.
+     */
+    private static final StructInternTable INTERN_TABLE = new StructInternTable();
+
+    /**
+     * Nesting of Structs compared by recursion on the Java stack, beyond which an explicit {@link TermStack} is used,
+     * see {@link #structurallyEquals(Struct, int)}.
+     */
+    private static final int MAX_RECURSION_DEPTH = 64;
+
 
     /**
      * The functor of the Struct is its "name". This is a final value but due to implementation via
      * method setNameAndArity(), we cannot declare it final here the compiler is not that smart.
      */
-    private String name; // Always "internalized" with String.intern(), you can compare with ==.
+    private String name; // Always a symbol from the SymbolTable, you can compare with ==.
 
     private int arity;
 
     private transient Object[] args;
 
     /**
-     * The signature is internalized and allows for fast matching during unification.
+     * The signature is canonical and allows for fast matching during unification.
      * We use the same format as in Prolog: name/arity
      */
-    private String signature;
+    private FunctorSignature signature;
 
     /**
      * Payload
      */
     private transient T content;
 
+    /**
+     * True only for canonical instances obtained from the {@link StructInternTable}: two distinct interned
+     * Structs are never equal, this spares a deep comparison.
+     */
+    private transient boolean interned;
+
+    /**
+     * Cached value of {@link #hashCode()}, calculated lazily like {@link String} does: the default of 0 means not yet calculated,
+     * unless {@link #hashIsZero}. Only depends on name, arity and arguments, which are immutable, so racy
+     * initialization by concurrent threads is benign: they all compute the same value.
+     */
+    private transient int hash;
+
+    /**
+     * True when the calculated {@link #hashCode()} is effectively 0, to avoid recalculating it.
+     */
+    private transient boolean hashIsZero;
+
+    /**
+     * Cached value of {@link #toString()}, only once frozen. Racy initialization is benign, as for {@link #hash}.
+     */
+    private transient String formatted;
+
+    /**
+     * Cached {@link #nodeCount()}, 0 until calculated. Like {@link #hash} this only depends on the arguments,
+     * so racy initialization is benign. Calculated together with {@link #depthAndGround}, see {@link #computeShape()}.
+     */
+    private transient int nodeCount;
+
+    /**
+     * Cached ({@link #depth()} + 1) shifted left by one, or'ed with 1 when {@link #isGround()}, 0 until calculated.
+     */
+    private transient int depthAndGround;
+
+    /**
+     * Cached {@link #distinctVarCount()} + 1, 0 until calculated.
+     */
+    private transient int distinctVarCountPlusOne;
+
     /**
      * Low-level constructor.
      *
@@ -143,13 +193,15 @@ public class Struct<T> extends Term implements Cloneable {
         this.arity = original.arity;
         this.signature = original.signature;
         this.content = original.content;
+        this.hash = original.hash; // Arguments are equal copies, so is the hash
+        this.hashIsZero = original.hashIsZero;
         // What about "this.index" ?
         if (this.arity > 0) {
             this.args = new Object[this.arity];
             for (int i = 0; i < this.arity; i++) {
                 Object cloned = original.args[i];
-                if (cloned instanceof Struct) {
-                    cloned = new Struct<>((Struct<?>) cloned);
+                if (cloned instanceof Struct<?> struct) {
+                    cloned = new Struct<>(struct);
                 }
                 this.args[i] = cloned;
             }
@@ -165,7 +217,7 @@ public class Struct<T> extends Term implements Cloneable {
      */
     public static Object atom(String functor) {
         // Search in the catalog of atoms for exact match
-        final String iFunctor = functor.intern();
+        final String iFunctor = SymbolTable.symbol(functor);
         //noinspection StringEquality - we internalized strings, so it is licit to copmare references
         final boolean specialAtomRequiresStruct = iFunctor == Struct.FUNCTOR_CUT || iFunctor == Struct.FUNCTOR_TRUE || iFunctor == Struct.FUNCTOR_FALSE;
         if (!specialAtomRequiresStruct) {
@@ -191,6 +243,28 @@ public class Struct<T> extends Term implements Cloneable {
         return newInstance;
     }
 
+    /**
+     * Opt-in factory to obtain the canonical instance of a ground compound, arguments are converted as
+     * in {@link #valueOf(String, Object...)}.
+     * Interned Structs are shared: identical ground terms obtained here are the same reference, so comparing them
+     * is an identity check. They are held by a global table with weak references, so unused terms can still be garbage-collected.
+     * <p>
+     * Note: A compound holding any {@link Var} is not ground and cannot be shared, it is returned as a new instance, not interned.
+     * Since interned instances are shared, do not {@link #setContent(Object)} on them.
+     *
+     * @return The canonical instance if ground, otherwise a new one.
+     */
+    public static Struct<?> interned(String functor, Object... argList) {
+        return (Struct<?>) INTERN_TABLE.intern(valueOf(functor, argList));
+    }
+
+    /**
+     * @return The canonical interned equivalent of term, see {@link TermApi#intern(Object)}
+     */
+    static Object intern(Object term) {
+        return INTERN_TABLE.intern(term);
+    }
+
     /**
      * Clone with new arguments.
      *
@@ -202,7 +276,21 @@ public class Struct<T> extends Term implements Cloneable {
         try {
             final Struct<?> clone = (Struct<?>) this.clone();
             clone.args = newArguments;
-            clone.setNameAndArity(clone.name, clone.args.length); // Also calculate the signature
+            if (clone.isFrozen()) {
+                // The clone is not frozen, and its index was for the original's arguments
+                clone.unfreezeClone();
+                clone.clearIndex();
+            }
+            clone.formatted = null;
+            clone.nodeCount = 0;
+            clone.depthAndGround = 0;
+            clone.distinctVarCountPlusOne = 0;
+            clone.interned = false;
+            clone.hash = 0; // Arguments changed, cached hash must be recalculated
+            clone.hashIsZero = false;
+            if (clone.args.length != clone.arity) {
+                clone.setNameAndArity(clone.name, clone.args.length); // Also obtain the signature
+            }
             return clone;
         } catch (CloneNotSupportedException e) {
             throw new InvalidTermException("Could not clone Struct " + this + ": " + e);
@@ -214,49 +302,122 @@ public class Struct<T> extends Term implements Cloneable {
     // ---------------------------------------------------------------------------
 
     /**
-     * Set Term#index to {@link Term#NO_INDEX}, recursively collect all argument's terms first,
+     * Set Term#index to {@link Term#NO_INDEX} (unless frozen), recursively collect all argument's terms first,
      * then finally add this {@link Struct} to collectedTerms.
      * The functor alone (without its children) is NOT collected as a term. An atom is collected as itself.
+     * Note: This and the following traversal methods use an explicit {@link TermStack} instead of recursion, so they can
+     * process terms of any depth.
      *
      * @param collectedTerms
      */
     void collectTermsInto(Collection<Object> collectedTerms) {
-        clearIndex();
-        if (this.arity > 0) {
-            Arrays.stream(this.args).forEach(child -> termApi().collectTermsInto(child, collectedTerms));
+        final TermStack stack = TermStack.acquire();
+        try {
+            if (!isFrozen()) {
+                clearIndex();
+            }
+            stack.push(this);
+            while (!stack.isEmpty()) {
+                final Object child = stack.nextArg();
+                if (child == null) {
+                    // All arguments collected, now the Struct itself
+                    collectedTerms.add(stack.pop());
+                } else if (child instanceof Struct<?> struct) {
+                    if (!struct.isFrozen()) {
+                        struct.clearIndex();
+                    }
+                    stack.push(struct);
+                } else {
+                    termApi().collectTermsInto(child, collectedTerms);
+                }
+            }
+        } finally {
+            stack.release();
         }
-        collectedTerms.add(this);
     }
 
-    Object factorize(Collection<Object> collectedTerms) {
-        // Recursively factorize all arguments of this Struct
-        final Object[] newArgs = new Object[this.arity];
-        boolean anyChange = false;
-        for (int i = 0; i < this.arity; i++) {
-            newArgs[i] = termApi().factorize(this.args[i], collectedTerms);
-            anyChange |= (newArgs[i] != this.args[i]);
+    /**
+     * Set Term#index to {@link Term#NO_INDEX}, recursively factorize all arguments first, then
+     * obtain the canonical equivalent of the resulting {@link Struct} from the table.
+     * A frozen {@link Struct} is already normalized and is returned as is. Within another term, a frozen {@link Struct}
+     * is kept if ground, otherwise it is rebuilt so that its variables can be indexed in the new term.
+     * All other {@link Struct}s below are traversed, so that each of their nodes is registered in the table.
+     *
+     * @param table
+     */
+    Object factorize(FactorizationTable table) {
+        if (isFrozen()) {
+            return this;
         }
-        // Now initialize result - a new Struct only if any change was found below
-        final Struct<?> factorized;
-        if (anyChange) {
-            factorized = this.cloneWithNewArguments(newArgs);
-        } else {
-            factorized = this;
+        final TermStack stack = TermStack.acquire();
+        try {
+            clearIndex();
+            stack.push(this);
+            while (!stack.isEmpty()) {
+                final Object child = stack.nextArg();
+                if (child == null) {
+                    // All arguments factorized, they are the topmost values
+                    final Struct<?> struct = stack.pop();
+                    final int firstArg = stack.nbValues() - struct.arity;
+                    boolean anyChange = false;
+                    for (int i = 0; i < struct.arity && !anyChange; i++) {
+                        anyChange = stack.valueAt(firstArg + i) != struct.args[i];
+                    }
+                    // A new Struct only if any change was found below
+                    final Struct<?> factorized;
+                    if (anyChange) {
+                        factorized = struct.cloneWithNewArguments(stack.popValuesFrom(firstArg));
+                    } else {
+                        stack.dropValuesFrom(firstArg);
+                        factorized = struct;
+                    }
+                    // If this Struct already has an equivalent in the table, use that one
+                    stack.pushValue(table.canonical(factorized));
+                } else if (child instanceof Struct<?> struct && struct.isFrozen()) {
+                    if (struct.isGround()) {
+                        stack.pushValue(table.canonical(struct));
+                    } else {
+                        stack.push(struct); // Keep its index, it will be rebuilt
+                    }
+                } else if (child instanceof Struct<?> struct) {
+                    struct.clearIndex();
+                    stack.push(struct);
+                } else {
+                    stack.pushValue(termApi().factorize(child, table));
+                }
+            }
+            return stack.popValue();
+        } finally {
+            stack.release();
         }
-        // If this Struct already has an equivalent in the provided collection, return that one
-        final Object betterEquivalent = factorized.findStructurallyEqualWithin(collectedTerms);
-        return Objects.requireNonNullElse(betterEquivalent, factorized);
     }
 
     Var<?> findVar(String varName) {
-        for (int i = 0; i < this.arity; i++) {
-            final Object term = this.args[i];
-            final Var<?> found = termApi().findVar(term, varName);
-            if (found != null) {
-                return found;
+        if (isGround()) {
+            return null;
+        }
+        final TermStack stack = TermStack.acquire();
+        try {
+            stack.push(this);
+            while (!stack.isEmpty()) {
+                final Object child = stack.nextArg();
+                if (child == null) {
+                    stack.pop();
+                } else if (child instanceof Struct<?> struct) {
+                    if (!struct.isGround()) {
+                        stack.push(struct);
+                    }
+                } else {
+                    final Var<?> found = termApi().findVar(child, varName);
+                    if (found != null) {
+                        return found;
+                    }
+                }
             }
+            return null;
+        } finally {
+            stack.release();
         }
-        return null;
     }
 
 
@@ -268,26 +429,117 @@ public class Struct<T> extends Term implements Cloneable {
         if (theOther == this) {
             return true; // Same reference
         }
-        if (!(theOther instanceof Struct<?> that)) {
+        if (!(theOther instanceof Struct<?> that) || !sameFunctor(that)) {
             return false;
         }
-        // Arity and names must match.
-        //noinspection StringEquality
-        if (this.arity == that.arity && this.name == that.name) { // Names are {@link String#intern()}alized so OK to check by reference
-            for (int i = 0; i < this.arity; i++) {
-                if (!termApi().structurallyEquals(this.args[i], that.args[i])) {
-                    return false;
+        return structurallyEquals(that, 0);
+    }
+
+    /**
+     * The rightmost pair of nested Structs (e.g. the tail of a list) is compared next in the same loop, other pairs
+     * by recursion. Beyond {@link #MAX_RECURSION_DEPTH} they are compared by {@link #structurallyEqualsOnStack(Struct)}
+     * instead, so that shallow terms never pay for the {@link TermStack} pool and deep ones cannot overflow the Java stack.
+     *
+     * @param that Having the same functor as this
+     * @param depth Of the recursion
+     */
+    private boolean structurallyEquals(Struct<?> that, int depth) {
+        Struct<?> struct = this;
+        Struct<?> other = that;
+        while (struct != null) {
+            Struct<?> nextStruct = null;
+            Struct<?> nextOther = null;
+            for (int i = struct.arity - 1; i >= 0; i--) {
+                final Object arg = struct.args[i];
+                final Object otherArg = other.args[i];
+                if (arg == otherArg) {
+                    continue; // Same reference
+                }
+                if (arg instanceof Struct<?> argStruct) {
+                    if (!(otherArg instanceof Struct<?> otherStruct) || !argStruct.sameFunctor(otherStruct)) {
+                        return false;
+                    }
+                    if (nextStruct == null) {
+                        nextStruct = argStruct;
+                        nextOther = otherStruct;
+                    } else if (depth < MAX_RECURSION_DEPTH ? !argStruct.structurallyEquals(otherStruct, depth + 1)
+                            : !argStruct.structurallyEqualsOnStack(otherStruct)) {
+                        return false;
+                    }
+                } else if (arg instanceof Var || !arg.equals(otherArg)) {
+                    return false; // Distinct Vars are never structurally equal
+                }
+            }
+            struct = nextStruct;
+            other = nextOther;
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@link #structurallyEquals(Struct, int)} but pairs of nested Structs, except the rightmost one,
+     * are pushed as values on a {@link TermStack} instead of being compared by recursion.
+     *
+     * @param that Having the same functor as this
+     */
+    private boolean structurallyEqualsOnStack(Struct<?> that) {
+        final TermStack stack = TermStack.acquire();
+        try {
+            Struct<?> struct = this;
+            Struct<?> other = that;
+            while (struct != null) {
+                Struct<?> nextStruct = null;
+                Struct<?> nextOther = null;
+                for (int i = struct.arity - 1; i >= 0; i--) {
+                    final Object arg = struct.args[i];
+                    final Object otherArg = other.args[i];
+                    if (arg == otherArg) {
+                        continue; // Same reference
+                    }
+                    if (arg instanceof Struct<?> argStruct) {
+                        if (!(otherArg instanceof Struct<?> otherStruct) || !argStruct.sameFunctor(otherStruct)) {
+                            return false;
+                        }
+                        if (nextStruct == null) {
+                            nextStruct = argStruct;
+                            nextOther = otherStruct;
+                        } else {
+                            stack.pushValue(argStruct);
+                            stack.pushValue(otherStruct);
+                        }
+                    } else if (arg instanceof Var || !arg.equals(otherArg)) {
+                        return false; // Distinct Vars are never structurally equal
+                    }
+                }
+                if (nextStruct == null && stack.nbValues() > 0) {
+                    nextOther = (Struct<?>) stack.popValue();
+                    nextStruct = (Struct<?>) stack.popValue();
                 }
+                struct = nextStruct;
+                other = nextOther;
             }
             return true;
+        } finally {
+            stack.release();
         }
-        return false;
+    }
+
+    /**
+     * @param that
+     * @return true if that (a different reference) can be structurally equal to this, considering only the functors.
+     */
+    private boolean sameFunctor(Struct<?> that) {
+        if (this.interned && that.interned) {
+            return false; // Distinct canonical instances
+        }
+        // Arity and names must match.
+        return this.signature == that.signature; // Signatures are canonical so OK to check by reference
     }
 
     /**
      * Write major properties of the Struct, and also calculate read-only indexing signature for efficient access.
      *
-     * @param functor whose named is internalized by {@link String#intern()}
+     * @param functor whose name is made a symbol by {@link SymbolTable#symbol(CharSequence)}
      * @param arity
      */
     private void setNameAndArity(String functor, int arity) {
@@ -297,9 +549,9 @@ public class Struct<T> extends Term implements Cloneable {
         if (functor.isEmpty() && arity > 0) {
             throw new InvalidTermException("The functor of a non-atom Struct cannot be an empty string");
         }
-        this.name = functor.intern();
+        this.name = SymbolTable.symbol(functor);
         this.arity = arity;
-        this.signature = (this.getName() + '/' + this.arity).intern();
+        this.signature = FunctorSignature.of(this.name, arity);
     }
 
     // --------------------------------------------------------------------------
@@ -307,13 +559,20 @@ public class Struct<T> extends Term implements Cloneable {
     // --------------------------------------------------------------------------
 
     /**
-     * @return A cloned array of all arguments (cloned to avoid any possibility to mutate)
+     * @return All arguments: a copy when frozen, otherwise the internal array, that must not be modified.
      */
     public Object[] getArgs() {
         if (this.args == null) {
             return EMPTY_ARGS_ARRAY;
         }
-        return this.args;
+        return isFrozen() ? this.args.clone() : this.args;
+    }
+
+    /**
+     * @return The internal array of arguments, never copied
+     */
+    Object[] argsArray() {
+        return this.args == null ? EMPTY_ARGS_ARRAY : this.args;
     }
 
     /**
@@ -327,9 +586,16 @@ public class Struct<T> extends Term implements Cloneable {
     /**
      * A unique identifier that determines the family of the predicate represented by this {@link Struct}.
      *
-     * @return The predicate's name + '/' + arity
+     * @return The predicate's name + '/' + arity, a symbol from the {@link SymbolTable}
      */
     public String getPredicateSignature() {
+        return this.signature.toString();
+    }
+
+    /**
+     * @return The canonical signature of this {@link Struct}, can be compared by reference.
+     */
+    public FunctorSignature getSignature() {
         return this.signature;
     }
 
@@ -394,15 +660,64 @@ public class Struct<T> extends Term implements Cloneable {
             // not assigned anything new
             return indexOfNextNonIndexedVar;
         }
-        // Recursive assignment
         int runningIndex = indexOfNextNonIndexedVar;
-        for (int i = 0; i < this.arity; i++) {
-            runningIndex = termApi().assignIndexes(this.args[i], runningIndex);
+        final TermStack stack = TermStack.acquire();
+        try {
+            stack.push(this);
+            while (!stack.isEmpty()) {
+                final Object child = stack.nextArg();
+                if (child == null) {
+                    // All arguments assigned
+                    stack.pop().setIndex(runningIndex);
+                } else if (child instanceof Struct<?> struct) {
+                    if (!struct.hasIndex()) {
+                        stack.push(struct);
+                    }
+                } else {
+                    runningIndex = termApi().assignIndexes(child, runningIndex);
+                }
+            }
+        } finally {
+            stack.release();
         }
-        setIndex(runningIndex);
         return runningIndex;
     }
 
+    /**
+     * Freeze this and all Structs and Vars below, see {@link TermApi#freeze(Object)}. Hash codes are calculated on the way.
+     */
+    void freeze() {
+        if (isFrozen()) {
+            return;
+        }
+        if (!hasIndex()) {
+            throw new InvalidTermException("Cannot freeze " + this + ", it must be normalized");
+        }
+        final TermStack stack = TermStack.acquire();
+        try {
+            stack.push(this);
+            while (!stack.isEmpty()) {
+                final Object child = stack.nextArg();
+                if (child == null) {
+                    final Struct<?> struct = stack.pop();
+                    if (!struct.hasIndex()) {
+                        throw new InvalidTermException("Cannot freeze " + struct + ", it must be normalized");
+                    }
+                    struct.hashCode();
+                    struct.markFrozen();
+                } else if (child instanceof Struct<?> struct) {
+                    if (!struct.isFrozen()) {
+                        stack.push(struct);
+                    }
+                } else if (child instanceof Var<?> var) {
+                    var.freeze();
+                }
+            }
+        } finally {
+            stack.release();
+        }
+    }
+
     public void avoidCycle(List<Term> visited) {
         for (final Term term : visited) {
             if (term == this) {
@@ -436,27 +751,141 @@ public class Struct<T> extends Term implements Cloneable {
         return this.name;
     }
 
+    /**
+     * @return true if there is no {@link Var} within this, not even the anonymous one. Calculated once then cached.
+     */
+    public boolean isGround() {
+        int shape = this.depthAndGround;
+        if (shape == 0) {
+            computeShape();
+            shape = this.depthAndGround;
+        }
+        return (shape & 1) != 0;
+    }
+
+    /**
+     * @return Number of nodes of the tree: this, plus one for every atomic argument, plus the nodes of every compound argument.
+     * A {@link Struct} appearing several times is counted each time. Saturates at {@link Integer#MAX_VALUE}.
+     * Calculated once then cached.
+     */
+    public int nodeCount() {
+        if (this.nodeCount == 0) {
+            computeShape();
+        }
+        return this.nodeCount;
+    }
+
+    /**
+     * @return Levels of nested compounds: 0 for an atom such as "true", 1 for f(a), 2 for f(g(a)).
+     * Calculated once then cached.
+     */
+    public int depth() {
+        int shape = this.depthAndGround;
+        if (shape == 0) {
+            computeShape();
+            shape = this.depthAndGround;
+        }
+        return (shape >>> 1) - 1;
+    }
+
+    /**
+     * @return Number of distinct {@link Var}s within this, the anonymous one excluded, as found by {@link TermApi#distinctVars(Object)}.
+     * Calculated once then cached.
+     */
+    public int distinctVarCount() {
+        int countPlusOne = this.distinctVarCountPlusOne;
+        if (countPlusOne == 0) {
+            countPlusOne = 1 + (isGround() ? 0 : termApi().distinctVarsInto(this, new ArrayList<>()));
+            this.distinctVarCountPlusOne = countPlusOne;
+        }
+        return countPlusOne - 1;
+    }
+
+    /**
+     * Calculate {@link #nodeCount} and {@link #depthAndGround} of this and of all Structs below that do not have them yet,
+     * children first so that each parent is calculated from its arguments only.
+     */
+    private void computeShape() {
+        final TermStack stack = TermStack.acquire();
+        try {
+            stack.push(this);
+            while (!stack.isEmpty()) {
+                final Object child = stack.nextArg();
+                if (child == null) {
+                    final Struct<?> struct = stack.pop();
+                    long nodes = 1;
+                    int depth = -1;
+                    boolean ground = true;
+                    for (int i = 0; i < struct.arity; i++) {
+                        final Object arg = struct.args[i];
+                        if (arg instanceof Struct<?> s) {
+                            nodes += s.nodeCount;
+                            final int shape = s.depthAndGround;
+                            depth = Math.max(depth, (shape >>> 1) - 1);
+                            ground &= (shape & 1) != 0;
+                        } else {
+                            nodes++;
+                            depth = Math.max(depth, 0);
+                            ground &= !(arg instanceof Var);
+                        }
+                    }
+                    struct.depthAndGround = ((depth + 2) << 1) | (ground ? 1 : 0);
+                    struct.nodeCount = (int) Math.min(nodes, Integer.MAX_VALUE);
+                } else if (child instanceof Struct<?> struct && (struct.nodeCount == 0 || struct.depthAndGround == 0)) {
+                    stack.push(struct);
+                }
+            }
+        } finally {
+            stack.release();
+        }
+    }
+
     public T getContent() {
         return content;
     }
 
+    /**
+     * The content is not part of the identity of a Struct: it does not affect {@link #equals(Object)} nor {@link #hashCode()}.
+     */
     public void setContent(T content) {
+        if (isFrozen()) {
+            throw new InvalidTermException("Cannot set the content of frozen Struct " + this);
+        }
         this.content = content;
     }
 
+    boolean isInterned() {
+        return this.interned;
+    }
+
+    void markInterned() {
+        this.interned = true;
+    }
+
     // ---------------------------------------------------------------------------
     // Methods of java.lang.Object
     // ---------------------------------------------------------------------------
 
 
+    /**
+     * Calculated once then cached, see {@link #hash}.
+     */
     @Override
     public int hashCode() {
-        int result = this.getName().hashCode();
-        result ^= this.arity << 8;
-        for (int i = 0; i < this.arity; i++) {
-            result ^= this.args[i].hashCode();
+        int h = this.hash;
+        if (h == 0 && !this.hashIsZero) {
+            h = this.getName().hashCode();
+            h ^= this.arity << 8;
+            for (int i = 0; i < this.arity; i++) {
+                h ^= this.args[i].hashCode();
+            }
+            if (h == 0) {
+                this.hashIsZero = true;
+            } else {
+                this.hash = h;
+            }
         }
-        return result;
+        return h;
     }
 
     /**
@@ -465,11 +894,16 @@ public class Struct<T> extends Term implements Cloneable {
      */
     @Override
     public boolean equals(Object other) {
+        if (other == this) {
+            return true;
+        }
         if (!(other instanceof Struct<?> that)) {
             return false;
         }
-        //noinspection StringEquality
-        if (!(this.arity == that.arity && this.name == that.name)) { // Names are {@link String#intern()}alized so OK to check by reference
+        if (this.interned && that.interned) {
+            return false; // Distinct canonical instances
+        }
+        if (this.signature != that.signature) { // Signatures are canonical so OK to check by reference
             return false;
         }
         for (int i = 0; i < this.arity; i++) {
@@ -485,7 +919,15 @@ public class Struct<T> extends Term implements Cloneable {
     // ---------------------------------------------------------------------------
 
     public String toString() {
-        return termApi().formatStruct(this);
+        if (!isFrozen()) {
+            return termApi().formatStruct(this);
+        }
+        String str = this.formatted;
+        if (str == null) {
+            str = termApi().formatStruct(this);
+            this.formatted = str;
+        }
+        return str;
     }
 
 }
@@ -0,0 +1,144 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Global hash-consing table of ground {@link Struct}s, see {@link Struct#interned(String, Object...)}.
+ * <p>
+ * Canonical instances are held by {@link WeakReference}s, so they can be garbage-collected when no longer used;
+ * stale entries are expunged on the next interning. Children are interned before their parent, so a {@link Struct}
+ * is keyed by a {@link StructKey} made of the identities of its canonical arguments.
+ * Thread-safe: several threads interning equal terms concurrently will obtain the same instance.
+ */
+final class StructInternTable {
+
+  private final ConcurrentHashMap<StructKey, InternedRef> table = new ConcurrentHashMap<>();
+  private final ReferenceQueue<Struct<?>> staleRefs = new ReferenceQueue<>();
+
+  /**
+   * @param term Any term
+   * @return The canonical instance of term if it is a ground {@link Struct}, otherwise term itself.
+   * Structs that are subclasses of {@link Struct}, or that carry a content, are not interned either.
+   */
+  Object intern(Object term) {
+    if (!(term instanceof Struct<?> root) || root.isInterned()) {
+      return term;
+    }
+    if (!isInternable(root)) {
+      return term;
+    }
+    // Post-order on an explicit stack: very long lists must not overflow the Java stack
+    final TermStack stack = TermStack.acquire();
+    try {
+      stack.push(root);
+      while (!stack.isEmpty()) {
+        final Object child = stack.nextArg();
+        if (child == null) {
+          // All arguments are canonical, they are the topmost values
+          final Struct<?> struct = stack.pop();
+          final int firstArg = stack.nbValues() - struct.getArity();
+          final Object[] args = struct.argsArray();
+          boolean anyChange = false;
+          for (int i = 0; i < args.length && !anyChange; i++) {
+            anyChange = stack.valueAt(firstArg + i) != args[i];
+          }
+          final Struct<?> candidate;
+          if (anyChange) {
+            candidate = struct.cloneWithNewArguments(stack.popValuesFrom(firstArg));
+          } else {
+            stack.dropValuesFrom(firstArg);
+            candidate = struct;
+          }
+          stack.pushValue(register(candidate));
+        } else if (child instanceof Var) {
+          return term; // Not ground
+        } else if (child instanceof Struct<?> struct) {
+          if (struct.isInterned()) {
+            stack.pushValue(struct);
+          } else if (isInternable(struct)) {
+            stack.push(struct);
+          } else {
+            return term; // Child cannot be interned, neither can its ancestors
+          }
+        } else {
+          stack.pushValue(child);
+        }
+      }
+      return stack.popValue();
+    } finally {
+      stack.release();
+    }
+  }
+
+  private static boolean isInternable(Struct<?> struct) {
+    return struct.getClass() == Struct.class && struct.getContent() == null;
+  }
+
+  /**
+   * @param candidate A ground {@link Struct} whose children are all canonical
+   * @return The canonical instance, or candidate itself when it becomes the canonical one
+   */
+  private Struct<?> register(Struct<?> candidate) {
+    expungeStaleEntries();
+    final StructKey key = new StructKey(candidate);
+    while (true) {
+      final InternedRef existingRef = this.table.get(key);
+      if (existingRef != null) {
+        final Struct<?> existing = existingRef.get();
+        if (existing != null) {
+          return existing;
+        }
+        this.table.remove(key, existingRef);
+      }
+      final InternedRef newRef = new InternedRef(candidate, key, this.staleRefs);
+      if (this.table.putIfAbsent(key, newRef) == null) {
+        candidate.markInterned();
+        return candidate;
+      }
+      // Lost a race with another thread interning an equal term, retry to obtain its instance
+    }
+  }
+
+  private void expungeStaleEntries() {
+    InternedRef stale;
+    while ((stale = (InternedRef) this.staleRefs.poll()) != null) {
+      this.table.remove(stale.key, stale);
+    }
+  }
+
+  /**
+   * @return Number of entries, including stale ones not yet expunged.
+   */
+  int size() {
+    return this.table.size();
+  }
+
+  private static final class InternedRef extends WeakReference<Struct<?>> {
+    private final StructKey key;
+
+    InternedRef(Struct<?> referent, StructKey key, ReferenceQueue<Struct<?>> queue) {
+      super(referent, queue);
+      this.key = key;
+    }
+  }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+/**
+ * Shallow hash-consing key of a {@link Struct}: its name, arity, and the identities of its arguments.
+ * {@link Term} arguments are compared by reference, any other Java object by {@link Object#equals(Object)}.
+ * This is only meaningful when all {@link Term} arguments are themselves canonical (hash-consed) instances,
+ * in which case equality of keys is the same as structural equality of the {@link Struct}s,
+ * see {@link TermApi#structurallyEquals(Object, Object)}.
+ * Note: The key does not reference the {@link Struct} itself, only its name and arguments.
+ */
+final class StructKey {
+
+  private final String name; // Internalized, compare with ==
+  private final Object[] args;
+  private final int hash;
+
+  StructKey(Struct<?> struct) {
+    this(struct.getName(), struct.argsArray());
+  }
+
+  StructKey(String name, Object[] args) {
+    this.name = name;
+    this.args = args;
+    int h = name.hashCode() * 31 + args.length;
+    for (final Object arg : args) {
+      h = h * 31 + (arg instanceof Term ? System.identityHashCode(arg) : arg.hashCode());
+    }
+    this.hash = h;
+  }
+
+  @Override
+  public int hashCode() {
+    return this.hash;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (other == this) {
+      return true;
+    }
+    if (!(other instanceof StructKey that)) {
+      return false;
+    }
+    //noinspection StringEquality - we internalized strings, so it is licit to compare references
+    if (this.hash != that.hash || this.name != that.name || this.args.length != that.args.length) {
+      return false;
+    }
+    for (int i = 0; i < this.args.length; i++) {
+      final Object mine = this.args[i];
+      final Object theirs = that.args[i];
+      if (mine == theirs) {
+        continue;
+      }
+      if (mine instanceof Term || theirs instanceof Term || !mine.equals(theirs)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table of symbols: the canonical instances of the names of atoms, functors and variables, so they can be compared with ==.
+ * Each symbol also has a dense int identifier, see {@link #idOf(String)}.
+ * <p>
+ * Looking up an existing symbol takes no lock, unlike {@link String#intern()} that goes through the JVM's native string table.
+ * Only the first registration of a symbol is synchronized, and it does use {@link String#intern()} once, so that symbols
+ * remain the same references as compile-time constants (such as {@link Struct#FUNCTOR_COMMA}) and any other interned String.
+ * <p>
+ * With {@link Retention#WEAK}, symbols that are no longer referenced can be garbage-collected, and their entries are
+ * expunged on the next registration. The global table, see {@link #symbol(CharSequence)}, is configured by the system
+ * property {@value #RETENTION_PROPERTY}, "strong" by default.
+ */
+public final class SymbolTable {
+
+  public enum Retention {
+    /**
+     * Symbols are never removed from the table, this is the fastest.
+     */
+    STRONG,
+    /**
+     * Symbols no longer referenced outside of the table can be garbage-collected, and then obtain a new id if registered again.
+     */
+    WEAK
+  }
+
+  public static final String RETENTION_PROPERTY = "logic2j.symbols.retention";
+
+  private static final SymbolTable GLOBAL = new SymbolTable(
+      Retention.valueOf(System.getProperty(RETENTION_PROPERTY, Retention.STRONG.name()).toUpperCase(Locale.ROOT)));
+
+  private final Retention retention;
+
+  /**
+   * With {@link Retention#STRONG}: keyed by the symbols themselves.
+   */
+  private final ConcurrentHashMap<String, StrongEntry> strongEntries;
+
+  /**
+   * With {@link Retention#WEAK}: {@link WeakEntry}s are both keys and values, looked up with {@link LookupKey}s.
+   */
+  private final ConcurrentHashMap<Object, WeakEntry> weakEntries;
+  private final ReferenceQueue<String> staleRefs;
+
+  private int nextId = 0; // Guarded by this
+
+  public SymbolTable(Retention retention) {
+    this.retention = retention;
+    if (retention == Retention.STRONG) {
+      this.strongEntries = new ConcurrentHashMap<>();
+      this.weakEntries = null;
+      this.staleRefs = null;
+    } else {
+      this.strongEntries = null;
+      this.weakEntries = new ConcurrentHashMap<>();
+      this.staleRefs = new ReferenceQueue<>();
+    }
+  }
+
+  /**
+   * @return The global table, used by all {@link Term}s.
+   */
+  public static SymbolTable global() {
+    return GLOBAL;
+  }
+
+  /**
+   * @param text
+   * @return The canonical symbol from the global table, to be used instead of {@link String#intern()}.
+   */
+  public static String symbol(CharSequence text) {
+    return GLOBAL.intern(text);
+  }
+
+  /**
+   * @param text
+   * @return The canonical symbol equal to text, registered if needed.
+   */
+  public String intern(CharSequence text) {
+    final String str = text.toString();
+    if (this.strongEntries != null) {
+      final StrongEntry found = this.strongEntries.get(str);
+      if (found != null) {
+        return found.symbol;
+      }
+    } else {
+      final WeakEntry found = this.weakEntries.get(new LookupKey(str));
+      if (found != null) {
+        final String symbol = found.get();
+        if (symbol != null) {
+          return symbol;
+        }
+      }
+    }
+    return register(str);
+  }
+
+  /**
+   * @param symbol
+   * @return The dense identifier of symbol, or -1 if it is not a canonical symbol of this table.
+   */
+  public int idOf(String symbol) {
+    if (this.strongEntries != null) {
+      final StrongEntry found = this.strongEntries.get(symbol);
+      return found != null && found.symbol == symbol ? found.id : -1;
+    }
+    final WeakEntry found = this.weakEntries.get(new LookupKey(symbol));
+    return found != null && found.get() == symbol ? found.id : -1;
+  }
+
+  /**
+   * @return Number of entries, with {@link Retention#WEAK} this includes stale ones not yet expunged.
+   */
+  public int size() {
+    return this.strongEntries != null ? this.strongEntries.size() : this.weakEntries.size();
+  }
+
+  public Retention getRetention() {
+    return this.retention;
+  }
+
+  private synchronized String register(String str) {
+    final String canonical = str.intern();
+    if (this.strongEntries != null) {
+      return this.strongEntries.computeIfAbsent(canonical, key -> new StrongEntry(canonical, this.nextId++)).symbol;
+    }
+    expungeStaleEntries();
+    final WeakEntry found = this.weakEntries.get(new LookupKey(canonical));
+    if (found != null && found.get() != null) {
+      return canonical; // Registered by another thread
+    }
+    if (found != null) {
+      this.weakEntries.remove(found); // Cleared but not yet enqueued
+    }
+    final WeakEntry entry = new WeakEntry(canonical, this.nextId++, this.staleRefs);
+    this.weakEntries.put(entry, entry);
+    return canonical;
+  }
+
+  private void expungeStaleEntries() {
+    Object stale;
+    while ((stale = this.staleRefs.poll()) != null) {
+      this.weakEntries.remove(stale);
+    }
+  }
+
+  private record StrongEntry(String symbol, int id) {
+  }
+
+  /**
+   * Equal to another {@link WeakEntry} of the same symbol, or to a {@link LookupKey} of the same text.
+   */
+  private static final class WeakEntry extends WeakReference<String> {
+    private final int id;
+    private final int hash;
+
+    WeakEntry(String symbol, int id, ReferenceQueue<String> queue) {
+      super(symbol, queue);
+      this.id = id;
+      this.hash = symbol.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (other == this) {
+        return true;
+      }
+      final String symbol = get();
+      if (symbol == null) {
+        return false;
+      }
+      if (other instanceof LookupKey key) {
+        return symbol.equals(key.text);
+      }
+      //noinspection StringEquality - symbols are canonical
+      return other instanceof WeakEntry that && symbol == that.get();
+    }
+  }
+
+  /**
+   * Transient key to look up a {@link WeakEntry} by text, without retaining the text in the table.
+   */
+  private record LookupKey(String text) {
+    @Override
+    public int hashCode() {
+      return this.text.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (other instanceof WeakEntry entry) {
+        return this.text.equals(entry.get());
+      }
+      return other instanceof LookupKey that && this.text.equals(that.text);
+    }
+  }
+
+}
@@ -17,11 +17,9 @@
 
 package org.logic2j.engine.model;
 
-import static org.logic2j.engine.model.TermApiLocator.termApi;
-
 import java.io.Serial;
 import java.io.Serializable;
-import java.util.Collection;
+import org.logic2j.engine.exception.InvalidTermException;
 import org.logic2j.engine.visitor.TermVisitor;
 
 /**
@@ -57,6 +55,11 @@ public abstract class Term implements Serializable {
    */
   private int index = NO_INDEX;
 
+  /**
+   * Set once by {@link TermApi#freeze(Object)}, then the index can no longer change.
+   */
+  private transient boolean frozen = false;
+
   // ---------------------------------------------------------------------------
   // Accessors
   // ---------------------------------------------------------------------------
@@ -65,7 +68,14 @@ public abstract class Term implements Serializable {
     return this.index;
   }
 
+  /**
+   * @param index
+   * @throws InvalidTermException If this term is frozen
+   */
   public void setIndex(int index) {
+    if (this.frozen) {
+      throw new InvalidTermException("Cannot change the index of frozen term " + this);
+    }
     this.index = index;
   }
 
@@ -77,31 +87,28 @@ public abstract class Term implements Serializable {
     return getIndex() != NO_INDEX;
   }
 
-  // ---------------------------------------------------------------------------
-  // TermVisitor
-  // ---------------------------------------------------------------------------
+  /**
+   * @return true if this term can no longer be modified, see {@link TermApi#freeze(Object)}
+   */
+  public boolean isFrozen() {
+    return this.frozen;
+  }
 
-  public abstract <R> R accept(TermVisitor<R> visitor);
+  void markFrozen() {
+    this.frozen = true;
+  }
 
+  /**
+   * Only for a fresh clone of a frozen term, that is not shared yet.
+   */
+  void unfreezeClone() {
+    this.frozen = false;
+  }
 
   // ---------------------------------------------------------------------------
-  // Graph traversal methods, template methods with "protected" scope, user code should use TermApi methods instead.
-  // Some traversal is implemented by the Visitor design pattern and the #accept() method
+  // TermVisitor
   // ---------------------------------------------------------------------------
 
-  /**
-   * Find the first {@link Term} that is either same, or structurally equal to this.
-   *
-   * @param findWithin
-   * @return The {@link Term} found or null when none found.
-   */
-  protected Object findStructurallyEqualWithin(Collection<Object> findWithin) {
-    for (final Object term : findWithin) {
-      if (term != this && termApi().structurallyEquals(term, this)) {
-        return term;
-      }
-    }
-    return null;
-  }
+  public abstract <R> R accept(TermVisitor<R> visitor);
 
 }
@@ -18,18 +18,19 @@
 package org.logic2j.engine.model;
 
 
-import static org.logic2j.engine.model.Struct.QUOTE;
 import static org.logic2j.engine.model.Var.strVar;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Function;
-import java.util.regex.Pattern;
 import org.logic2j.engine.exception.InvalidTermException;
 import org.logic2j.engine.visitor.ExtendedTermVisitor;
-import org.logic2j.engine.visitor.TermVisitor;
 
 /**
  * Facade API to the {@link Term} hierarchy, to ease their handling. This class resides in the same package as the {@link Term}
@@ -42,7 +43,21 @@ import org.logic2j.engine.visitor.TermVisitor;
  */
 public class TermApi {
 
-  private static final Pattern ATOM_PATTERN = Pattern.compile("(!|[a-z][a-zA-Z_0-9]*)");
+  /**
+   * Characters allowed after the first one in an atom that needs no quoting: [a-zA-Z_0-9], indexed by char.
+   */
+  private static final boolean[] ATOM_CHARS = new boolean[128];
+
+  static {
+    for (char c = 'a'; c <= 'z'; c++) {
+      ATOM_CHARS[c] = true;
+      ATOM_CHARS[Character.toUpperCase(c)] = true;
+    }
+    for (char c = '0'; c <= '9'; c++) {
+      ATOM_CHARS[c] = true;
+    }
+    ATOM_CHARS['_'] = true;
+  }
 
   // TODO Currently unused but we probably should use an assertion method with very clean error handling as this one
   private static Struct<?> requireStruct(Object term, String functor, int arity) {
@@ -157,35 +172,68 @@ public class TermApi {
 
   /**
    * Factorize a {@link Term}, this means recursively traversing the {@link Term} structure and assigning any duplicates substructures to
-   * the same references.
+   * the same references. Also reinit the Term#index of all terms to {@link Term#NO_INDEX}.
+   * <p>
+   * Note: Duplicates are found with a hash-consing table (see {@link FactorizationTable}), so this runs in linear time of the number of
+   * sub-terms.
    *
    * @param term
    * @return The factorized term, may be same as argument term in case nothing was needed, or a new object.
    */
   public <T> T factorize(T term) {
-    final Collection<Object> collection = collectTerms(term);
-    return (T) factorize(term, collection);
+    return (T) factorizeRoot(term, new FactorizationTable());
   }
 
   /**
-   * Factorizing will either return a new {@link Term} or this {@link Term} if it already exists in the supplied Collection.
+   * Factorizing will either return a new {@link Term} or this {@link Term} if an equivalent one already exists in the supplied Collection.
    * This will factorize duplicated atoms, numbers, variables, or even structures that are statically equal. A factorized {@link Struct}
    * will have all occurrences of the same {@link Var}iable sharing the same object reference. This is an internal template method: the
    * public API entry point is {@link TermApi#factorize(Object)}; see a more detailed description there.
    *
+   * @param collection Terms whose (factorized) equivalents are preferred over the ones found in term.
    * @return Either this, or a new equivalent but factorized Term.
    */
   public Object factorize(Object term, Collection<Object> collection) {
+    final FactorizationTable table = new FactorizationTable();
+    for (final Object preferred : collection) {
+      factorize(preferred, table);
+    }
+    return factorizeRoot(term, table);
+  }
+
+  /**
+   * A frozen {@link Var} at the root is returned as is, like a frozen {@link Struct}: only within another term
+   * is it replaced, to be indexed there.
+   */
+  private Object factorizeRoot(Object term, FactorizationTable table) {
+    if (term instanceof Var<?> var && var.isFrozen()) {
+      return term;
+    }
+    return factorize(term, table);
+  }
+
+  Object factorize(Object term, FactorizationTable table) {
     if (term instanceof Struct) {
-      return ((Struct<?>) term).factorize(collection);
+      return ((Struct<?>) term).factorize(table);
     } else if (term instanceof Var) {
-      return ((Var<?>) term).factorize(collection);
+      return ((Var<?>) term).factorize(table);
     } else {
       // Not a Term but a plain Java object - won't factorize
       return term;
     }
   }
 
+  /**
+   * Obtain the canonical instance of a ground term from the global table of interned terms,
+   * see {@link Struct#interned(String, Object...)}.
+   *
+   * @param term
+   * @return The canonical equivalent of term when it is a ground {@link Struct}, otherwise term itself.
+   */
+  public <T> T intern(T term) {
+    return (T) Struct.intern(term);
+  }
+
   /**
    * Check structural equality, this means that the names of atoms, functors, arity and numeric values are all equal, that the same
    * variables are referred to, but irrelevant of the bound values of those variables.
@@ -256,34 +304,39 @@ public class TermApi {
    * return transformed object
    */
   public Object depthFirstStructTransform(Object term, Function<Struct<?>, Struct<?>> structMapper) {
-    if (!(term instanceof Struct<?> struct)) {
+    if (!(term instanceof Struct<?> root)) {
       return term;
     }
-    final Object[] args = struct.getArgs();
-    if (args.length > 0) {
-      // Transform args, depth first
-      final Object[] newArgs = new Object[args.length];
-      boolean anyChange = false;
-      for (int i = 0; i < args.length; i++) {
-        final Object argi = struct.getArg(i);
-        if (argi instanceof Struct<?>) {
-          final Object remapped = depthFirstStructTransform(argi, structMapper);
-          anyChange |= (argi != remapped);
-          newArgs[i] = remapped;
+    final TermStack stack = TermStack.acquire();
+    try {
+      stack.push(root);
+      while (!stack.isEmpty()) {
+        final Object argi = stack.nextArg();
+        if (argi == null) {
+          // All args transformed, depth first: they are the topmost values
+          final Struct<?> struct = stack.pop();
+          final int firstArg = stack.nbValues() - struct.getArity();
+          boolean anyChange = false;
+          for (int i = 0; i < struct.getArity() && !anyChange; i++) {
+            anyChange = stack.valueAt(firstArg + i) != struct.getArg(i);
+          }
+          if (anyChange) {
+            // Args changed
+            stack.pushValue(structMapper.apply(struct.cloneWithNewArguments(stack.popValuesFrom(firstArg))));
+          } else {
+            // Args unchanged (or arity 0), just map the structure
+            stack.dropValuesFrom(firstArg);
+            stack.pushValue(structMapper.apply(struct));
+          }
+        } else if (argi instanceof Struct<?> struct) {
+          stack.push(struct);
         } else {
-          newArgs[i] = argi;
+          stack.pushValue(argi);
         }
       }
-      if (anyChange) {
-        // Args changed
-        return structMapper.apply(struct.cloneWithNewArguments(newArgs));
-      } else {
-        // Args unchanged, just map the structure
-        return structMapper.apply(struct);
-      }
-    } else {
-      // Arity 0
-      return structMapper.apply(struct);
+      return stack.popValue();
+    } finally {
+      stack.release();
     }
   }
 
@@ -327,56 +380,56 @@ public class TermApi {
     if (text == null) {
       return null;
     }
-    if (text.isEmpty()) {
-      // Probably that the empty string is not allowed in regular Prolog
-      return "''";
+    if (!needsQuote(text)) {
+      return text;
     }
-    final String textAsString = text.toString();
-    final boolean needQuote =
-            /* Fast check */ !Character.isLowerCase(text.charAt(0)) ||
-            /* For numbers */ textAsString.indexOf('.') >= 0 ||
-            /* Much slower */ !ATOM_PATTERN.matcher(textAsString).matches();
-    if (needQuote) {
-      return quotedText(textAsString);
+    final StringBuilder sb = new StringBuilder(text.length() + 2);
+    try {
+      TermWriter.appendQuoted(sb, text);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // Cannot happen with a StringBuilder
     }
-    return text;
+    return sb;
   }
 
-  private static StringBuilder quotedText(String textAsString) {
-    final StringBuilder sb = new StringBuilder(textAsString.length() + 2);
-    sb.append(QUOTE); // Opening quote
-    for (final char c : textAsString.toCharArray()) {
-      switch (c) {
-        case '\n' -> sb.append("\\n");
-        case '\r' -> sb.append("\\r");
-        // Quotes are doubled
-        case QUOTE, '\\' -> { // Backslash are doubled
-          sb.append(c);
-          sb.append(c);
-        }
-        default -> // Other chars are just output
-                sb.append(c);
+  /**
+   * @param text Not null
+   * @return true if text must be quoted to be read back as an atom, see {@link #quoteIfNeeded(CharSequence)}
+   */
+  public boolean needsQuote(CharSequence text) {
+    // Only [a-z][a-zA-Z_0-9]* needs no quoting, scanned by hand: this is on the path of formatting every Struct
+    final int length = text.length();
+    if (length == 0) {
+      // Probably that the empty string is not allowed in regular Prolog
+      return true;
+    }
+    final char first = text.charAt(0);
+    if (first < 'a' || first > 'z') {
+      return true;
+    }
+    for (int i = 1; i < length; i++) {
+      final char c = text.charAt(i);
+      if (c >= ATOM_CHARS.length || !ATOM_CHARS[c]) {
+        return true;
       }
     }
-    sb.append(QUOTE); // Closing quote
-    return sb;
+    return false;
   }
 
+  /**
+   * Format a {@link Struct} as name(arg1, ..., argN), with the name quoted if needed (see {@link #quoteIfNeeded(CharSequence)}).
+   * Nested {@link Struct}s are formatted in the same pass, except instances of subclasses that are formatted by their own toString().
+   * To format into a {@link java.io.Writer} or any other {@link Appendable}, use a {@link TermWriter}.
+   *
+   * @param struct
+   * @return The formatted Struct
+   */
   public <T> String formatStruct(Struct<T> struct) {
     final StringBuilder sb = new StringBuilder();
-    final int nArity = struct.getArity();
-    sb.append(quoteIfNeeded(struct.getName()));
-    if (nArity > 0) {
-      sb.append(Struct.PAR_OPEN);
-      for (int c = 0; c < nArity; c++) {
-        final Object arg = struct.getArg(c);
-        final String formatted = arg.toString();
-        sb.append(formatted);
-        if (c < nArity - 1) {
-          sb.append(Struct.ARG_SEPARATOR);
-        }
-      }
-      sb.append(Struct.PAR_CLOSE);
+    try {
+      new TermWriter(sb, this).writeStruct(struct);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // Cannot happen with a StringBuilder
     }
     return sb.toString();
   }
@@ -393,6 +446,10 @@ public class TermApi {
    * This method should be overloaded in a real Prolog execution environment where
    * primitives and operators need to be dealt with.
    *
+   * Note: the indexes are written into the terms, including sub-terms shared with other terms: do not normalize a term
+   * that other threads may be using. To share a term, such as a cached goal template, between threads without copying it,
+   * {@link #freeze(Object)} it once normalized.
+   *
    * @param term To be normalized
    * @return A normalized COPY of term ready to be used for inference (in a Theory ore as a goal)
    */
@@ -402,6 +459,29 @@ public class TermApi {
     return factorized;
   }
 
+  /**
+   * Make a normalized term deeply immutable, in place: the indexes of all its {@link Struct}s and {@link Var}s
+   * can no longer change, the content of its {@link Struct}s cannot be set, and {@link Struct#getArgs()} returns copies.
+   * Hash codes are calculated now, and the formatted strings are cached on first use.
+   * <p>
+   * Once frozen, a term can be shared by threads without copying: {@link #normalize(Object)} returns it unchanged,
+   * and a term that embeds it normalizes without modifying it. The fields of terms are not final, so the frozen term
+   * must still be published safely to other threads: through a volatile or final field (e.g. of the object holding it),
+   * a concurrent collection, or before starting the threads.
+   *
+   * @param term A normalized term, see {@link #normalize(Object)}
+   * @return term, frozen
+   * @throws InvalidTermException If term was not normalized
+   */
+  public <T> T freeze(T term) {
+    if (term instanceof Struct<?> struct) {
+      struct.freeze();
+    } else if (term instanceof Var<?> var) {
+      var.freeze();
+    }
+    return term;
+  }
+
   /**
    * Primitive factory for simple {@link Term}s from plain Java {@link Object}s, use this
    * with parsimony at low-level.
@@ -448,7 +528,7 @@ public class TermApi {
         result = strVar(chars);
       } else {
         // Otherwise it's an atom
-        result = chars.intern();
+        result = SymbolTable.symbol(chars);
       }
     } else if (anyObject instanceof Number nbr) {
       // Other types of numbers
@@ -476,47 +556,68 @@ public class TermApi {
    * @return Array of unique Vars, in the order found by depth-first traversal.
    */
   public Var<?>[] distinctVars(Object term) {
-    final Var<?>[] tempArray = new Var[100]; // Enough for the moment - we could plan an auto-allocating array if needed, I doubt it
-    final int[] nbVars = new int[]{0};
-
-    final TermVisitor<Void> findVarsVisitor = new TermVisitor<>() {
-      @Override
-      public Void visit(Var<?> var) {
-        if (!var.isAnon()) {
-          // Insert into array (even if this may duplicate) - this will act as a sentinel
-          final int highest = nbVars[0];
-          tempArray[highest] = var;
-          // Search if we already have this var in the array - due to the sentinel we will always find it!
-          int foundIndex = 0;
-          while (tempArray[foundIndex] != var) {
-            foundIndex++;
-          }
-          // Did we hit the sentinel?
-          if (foundIndex == highest) {
-            // Was not present already - let's use the sentinel as a real value - increment size of found vars
-            nbVars[0]++;
-          } // Else: already present - leave the sentinel there we don't care but don't consider it as a new value
-        }
-        return null;
-      }
+    final List<Var<?>> recipient = new ArrayList<>();
+    distinctVarsInto(term, recipient);
+    return recipient.toArray(new Var<?>[0]);
+  }
 
-      @Override
-      public Void visit(Struct<?> struct) {
-        // Recurse through children
-        final Object[] args = struct.getArgs();
-        for (final Object arg : args) {
-          if (arg instanceof Term) {
-            ((Term) arg).accept(this);
+  /**
+   * Add all distinct (unique) Vars in the specified term to a recipient, in the order found by depth-first traversal.
+   * Vars that have an index (see {@link #normalize(Object)}) are deduplicated by their index, others by reference;
+   * distinct Vars that happen to share an index, as when normalized in separate terms, are told apart by reference.
+   * With a normalized term, and a recipient reused by the caller (e.g. a cleared {@link ArrayList}), nothing is allocated.
+   *
+   * @param term
+   * @param recipient Recipient collection, only the Vars of term are considered for uniqueness, not those already there.
+   * @return The number of Vars added
+   */
+  public int distinctVarsInto(Object term, Collection<Var<?>> recipient) {
+    if (term instanceof Var<?> var) {
+      if (var.isAnon()) {
+        return 0;
+      }
+      recipient.add(var);
+      return 1;
+    }
+    if (!(term instanceof Struct<?> root) || root.isGround()) {
+      return 0;
+    }
+    int nbVars = 0;
+    Set<Var<?>> nonIndexed = null;
+    final TermStack stack = TermStack.acquire();
+    try {
+      stack.push(root);
+      while (!stack.isEmpty()) {
+        final Object arg = stack.nextArg();
+        if (arg == null) {
+          stack.pop();
+        } else if (arg instanceof Struct<?> struct) {
+          if (!struct.isGround()) {
+            stack.push(struct);
+          }
+        } else if (arg instanceof Var<?> var && !var.isAnon()) {
+          final boolean indexed = var.getIndex() >= 0;
+          final Object marked = indexed ? stack.mark(var.getIndex(), var) : null;
+          final boolean isNew;
+          if (indexed && (marked == null || marked == var)) {
+            isNew = marked == null;
+          } else {
+            // Not indexed, or another Var with the same index, normalized within another term
+            if (nonIndexed == null) {
+              nonIndexed = Collections.newSetFromMap(new IdentityHashMap<>());
+            }
+            isNew = nonIndexed.add(var);
+          }
+          if (isNew) {
+            recipient.add(var);
+            nbVars++;
           }
         }
-        return null;
       }
-    };
-    if (term instanceof Term) {
-      ((Term) term).accept(findVarsVisitor);
+    } finally {
+      stack.release();
     }
-    // Now copy the values found as the tempArray
-    return Arrays.copyOf(tempArray, nbVars[0]);
+    return nbVars;
   }
 
 }
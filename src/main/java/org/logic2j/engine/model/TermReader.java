@@ -0,0 +1,857 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import static org.logic2j.engine.model.TermApiLocator.termApi;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.logic2j.engine.exception.InvalidTermException;
+
+/**
+ * Reads terms in Prolog syntax, one per clause terminated by a '.', such as "f(X, g(a, 1.5), [1,2,3]).".
+ * <p>
+ * Supported syntax: variables (starting with an uppercase or "_", "_" alone being the anonymous one),
+ * atoms (alphanumeric starting with a lowercase, quoted with '' or "" and escapes, made of symbol characters,
+ * or "!", ";", "[]"), integers (as Integer, or Long when they do not fit), decimals (as Double),
+ * compounds "name(args)" and lists "[a,b|T]" (as "."/2 Structs terminated by the atom "[]").
+ * Comments start with "%" up to the end of line, or are enclosed in slash-star star-slash. Operators are not supported.
+ * <p>
+ * Characters are scanned in place from a {@link CharBuffer}: a whole text in memory is never copied,
+ * other sources are decoded into a window that only grows to hold the largest clause.
+ * Atoms and functors are resolved to their {@link SymbolTable} symbols (through {@link Struct#atom(String)} for atoms),
+ * recently seen names are recognized without creating a String.
+ * A variable name denotes the same {@link Var} within one clause, and each term is normalized with
+ * {@link TermApi#normalize(Object)} unless disabled.
+ * <p>
+ * Terms are obtained one by one with {@link #read()}, in batches with {@link #readBatch(List, int)},
+ * or as a lazy {@link #stream()}. Instances are not thread-safe.
+ */
+public final class TermReader implements Closeable {
+  static final String LIST_FUNCTOR = ".";
+  static final String EMPTY_LIST = "[]";
+
+  static final int DEFAULT_WINDOW_CHARS = 1 << 16;
+  private static final int SYMBOL_CACHE_SIZE = 1 << 12; // Power of 2
+  private static final String SYMBOL_CHARS = "+-*/\\^<>=~:.?@#&$";
+
+  /**
+   * Refills the window, null when the whole text is in the window
+   */
+  private Readable source;
+  private final Closeable resource;
+
+  /**
+   * Characters at indexes [0, limit) are valid, the window's own position stays at 0 and its limit is not used.
+   */
+  private CharBuffer window;
+  private int limit;
+  private int pos = 0;
+  private boolean sourceExhausted;
+
+  /**
+   * End of the clause being parsed (index of its terminating '.', or limit)
+   */
+  private int clauseEnd;
+  private int clauseStart;
+  private int line = 1;
+  private int clauseLine = 1;
+
+  private boolean normalize = true;
+  private TermApi termApi = termApi();
+  private final Map<String, Var<?>> clauseVars = new IdentityHashMap<>();
+  private final StringBuilder unescaped = new StringBuilder();
+
+  /**
+   * Direct-mapped cache of symbols by hash, a colliding name replaces the previous one.
+   */
+  private final String[] cachedSymbols = new String[SYMBOL_CACHE_SIZE];
+  private final int[] cachedHashes = new int[SYMBOL_CACHE_SIZE];
+
+  /**
+   * Read from a text in memory, without copying it.
+   *
+   * @param text
+   */
+  public TermReader(CharSequence text) {
+    this(CharBuffer.wrap(text));
+  }
+
+  /**
+   * Read the remaining characters of a buffer, without copying them. The buffer's position is not moved.
+   *
+   * @param buffer
+   */
+  public TermReader(CharBuffer buffer) {
+    this.window = buffer.slice();
+    this.limit = this.window.limit();
+    this.source = null;
+    this.resource = null;
+    this.sourceExhausted = true;
+  }
+
+  /**
+   * Read from a source of characters, such as a {@link java.io.Reader}, through a window.
+   *
+   * @param source Closed with this reader if it is {@link Closeable}
+   */
+  public TermReader(Readable source) {
+    this(source, source instanceof Closeable closeable ? closeable : null, DEFAULT_WINDOW_CHARS);
+  }
+
+  private TermReader(Readable source, Closeable resource, int windowChars) {
+    this.source = source;
+    this.resource = resource;
+    this.window = CharBuffer.allocate(windowChars);
+    this.limit = 0;
+    this.sourceExhausted = false;
+  }
+
+  /**
+   * Read from a file mapped in memory, decoded in UTF-8.
+   */
+  public static TermReader ofFile(Path path) throws IOException {
+    return ofFile(path, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Read from a file mapped in memory. Bytes are decoded straight from the mapping into the window,
+   * whatever the size of the file.
+   *
+   * @param path
+   * @param charset
+   */
+  public static TermReader ofFile(Path path, Charset charset) throws IOException {
+    final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new TermReader(new MappedSource(channel, charset), channel, DEFAULT_WINDOW_CHARS);
+    } catch (RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Parse a single term, the terminating '.' is optional.
+   *
+   * @param text
+   * @return The normalized term
+   * @throws InvalidTermException If text does not contain exactly one term
+   */
+  public static Object parse(CharSequence text) {
+    final TermReader reader = new TermReader(text);
+    final Object term = reader.read();
+    if (term == null) {
+      throw new InvalidTermException("No term in \"" + text + '"');
+    }
+    if (reader.read() != null) {
+      throw new InvalidTermException("More than one term in \"" + text + '"');
+    }
+    return term;
+  }
+
+  /**
+   * @param normalize Whether terms are normalized, true by default
+   * @return this
+   */
+  public TermReader normalize(boolean normalize) {
+    this.normalize = normalize;
+    return this;
+  }
+
+  /**
+   * @param termApi Used for normalization, when the default one is not appropriate
+   * @return this
+   */
+  public TermReader withTermApi(TermApi termApi) {
+    this.termApi = termApi;
+    return this;
+  }
+
+  // ---------------------------------------------------------------------------
+  // Reading terms
+  // ---------------------------------------------------------------------------
+
+  /**
+   * @return The next term, or null when there are no more.
+   * @throws InvalidTermException On a syntax error, the reader is then positioned after the faulty clause
+   * @throws UncheckedIOException If the source fails
+   */
+  public Object read() {
+    if (!nextClause()) {
+      return null;
+    }
+    this.clauseVars.clear();
+    try {
+      final Object term = parseTerm();
+      skipLayout();
+      if (this.pos < this.clauseEnd) {
+        throw syntaxError("Unexpected text after the term");
+      }
+      return this.normalize ? this.termApi.normalize(term) : term;
+    } finally {
+      this.pos = Math.min(this.clauseEnd + 1, this.limit);
+    }
+  }
+
+  /**
+   * Read up to max terms.
+   *
+   * @param into Where terms are added
+   * @param max
+   * @return Number of terms added, less than max only when there are no more
+   */
+  public int readBatch(List<Object> into, int max) {
+    int count = 0;
+    Object term;
+    while (count < max && (term = read()) != null) {
+      into.add(term);
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * @return A lazy sequential stream of the remaining terms. Closing it closes this reader.
+   */
+  public Stream<Object> stream() {
+    final Spliterator<Object> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+        Spliterator.ORDERED | Spliterator.NONNULL) {
+      @Override
+      public boolean tryAdvance(Consumer<? super Object> action) {
+        final Object term = read();
+        if (term == null) {
+          return false;
+        }
+        action.accept(term);
+        return true;
+      }
+    };
+    return StreamSupport.stream(spliterator, false).onClose(this::closeQuietly);
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.source = null;
+    this.sourceExhausted = true;
+    if (this.resource != null) {
+      this.resource.close();
+    }
+  }
+
+  private void closeQuietly() {
+    try {
+      close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // ---------------------------------------------------------------------------
+  // Delimiting clauses within the window
+  // ---------------------------------------------------------------------------
+
+  /**
+   * Position at the start of the next clause, and make sure it is entirely within the window.
+   *
+   * @return false if there are no more clauses
+   */
+  private boolean nextClause() {
+    while (true) {
+      this.clauseStart = this.pos; // Keep the remaining layout in the window if it needs to be refilled
+      final boolean complete = skipLayout();
+      this.clauseStart = this.pos;
+      if (complete && this.pos < this.limit) {
+        break;
+      }
+      if (this.sourceExhausted) {
+        return false;
+      }
+      fill();
+    }
+    this.clauseLine = this.line;
+    int end = findClauseEnd(this.clauseStart);
+    while (end < 0 && !this.sourceExhausted) {
+      fill();
+      end = findClauseEnd(this.clauseStart); // Its start may have moved
+    }
+    this.clauseEnd = end < 0 ? this.limit : end;
+    return true;
+  }
+
+  /**
+   * Read more characters into the window, discarding those before the current clause.
+   * The window is doubled when the clause takes half of it.
+   */
+  private void fill() {
+    final int keepFrom = this.clauseStart;
+    final int kept = this.limit - keepFrom;
+    CharBuffer target = this.window;
+    if (kept >= target.capacity() / 2) {
+      target = CharBuffer.allocate(target.capacity() * 2);
+    }
+    if (kept > 0) {
+      target.put(0, this.window, keepFrom, kept);
+    }
+    this.window = target;
+    this.pos -= keepFrom;
+    this.clauseStart = 0;
+    target.limit(target.capacity()).position(kept);
+    try {
+      int read;
+      do {
+        read = this.source.read(target);
+      } while (read == 0);
+      if (read < 0) {
+        this.sourceExhausted = true;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.limit = target.position();
+    target.position(0); // Relative accessors such as charAt() then use the same indexes as absolute ones
+  }
+
+  /**
+   * @param from
+   * @return Index of the '.' terminating the clause, or -1 if it is not within the window
+   */
+  private int findClauseEnd(int from) {
+    final CharBuffer buf = this.window;
+    final int end = this.limit;
+    int i = from;
+    while (i < end) {
+      final char c = buf.get(i);
+      if (c == '\'' || c == '"') {
+        i = skipQuoted(i, end);
+        if (i < 0) {
+          return -1;
+        }
+      } else if (c == '%') {
+        while (i < end && buf.get(i) != '\n') {
+          i++;
+        }
+      } else if (c == '/' && i + 1 < end && buf.get(i + 1) == '*') {
+        final int closing = skipBlockComment(i, end);
+        if (closing < 0) {
+          return -1;
+        }
+        i = closing;
+      } else if (c == '.' && i > from && SYMBOL_CHARS.indexOf(buf.get(i - 1)) >= 0) {
+        i++; // Within a symbolic atom such as "=.."
+      } else if (c == '.') {
+        if (i + 1 == end) {
+          return this.sourceExhausted ? i : -1; // Need to see the next character
+        }
+        final char next = buf.get(i + 1);
+        if (Character.isWhitespace(next) || next == '%') {
+          return i;
+        }
+        i++;
+      } else {
+        i++;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return Index after the closing quote of the quoted text at i, or -1 if it is not within end
+   */
+  private int skipQuoted(int i, int end) {
+    final CharBuffer buf = this.window;
+    final char quote = buf.get(i++);
+    while (i < end) {
+      final char c = buf.get(i++);
+      if (c == '\\') {
+        i++;
+      } else if (c == quote) {
+        if (i < end && buf.get(i) == quote) {
+          i++; // Doubled quote
+        } else {
+          return i;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return Index after the end of the block comment at i, or -1 if it is not within end
+   */
+  private int skipBlockComment(int i, int end) {
+    final CharBuffer buf = this.window;
+    for (i += 2; i + 1 < end; i++) {
+      if (buf.get(i) == '*' && buf.get(i + 1) == '/') {
+        return i + 2;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Skip whitespace and comments up to {@link #limit}, counting lines.
+   *
+   * @return false if stopped before a comment that does not end within the window
+   */
+  private boolean skipLayout() {
+    final CharBuffer buf = this.window;
+    final int end = this.limit;
+    while (this.pos < end) {
+      final char c = buf.get(this.pos);
+      if (c == '\n') {
+        this.line++;
+        this.pos++;
+      } else if (Character.isWhitespace(c)) {
+        this.pos++;
+      } else if (c == '%') {
+        int newline = this.pos + 1;
+        while (newline < end && buf.get(newline) != '\n') {
+          newline++;
+        }
+        if (newline == end && !this.sourceExhausted) {
+          return false;
+        }
+        this.pos = newline;
+      } else if (c == '/' && this.pos + 1 < end && buf.get(this.pos + 1) == '*') {
+        final int closing = skipBlockComment(this.pos, end);
+        if (closing < 0) {
+          if (this.sourceExhausted) {
+            throw new InvalidTermException("Unterminated comment at line " + this.line);
+          }
+          return false;
+        }
+        for (int i = this.pos; i < closing; i++) {
+          if (buf.get(i) == '\n') {
+            this.line++;
+          }
+        }
+        this.pos = closing;
+      } else {
+        return true;
+      }
+    }
+    return true;
+  }
+
+  // ---------------------------------------------------------------------------
+  // Parsing a clause
+  // ---------------------------------------------------------------------------
+
+  /**
+   * A compound, list or parenthesized term being parsed, so that nesting does not consume the Java stack.
+   */
+  private static final class Frame {
+    static final int COMPOUND = 0;
+    static final int LIST = 1;
+    static final int PAREN = 2;
+
+    final int kind;
+    final String functor;
+    final List<Object> items = new ArrayList<>(4);
+    Object tail;
+    boolean inTail;
+
+    Frame(int kind, String functor) {
+      this.kind = kind;
+      this.functor = functor;
+    }
+  }
+
+  private Object parseTerm() {
+    final List<Frame> stack = new ArrayList<>();
+    while (true) {
+      Object value = parsePrimary(stack);
+      if (value == null) {
+        continue; // Opened a frame, parse its first item
+      }
+      // Complete enclosing frames as long as they are closed
+      while (true) {
+        if (stack.isEmpty()) {
+          return value;
+        }
+        final Frame frame = stack.get(stack.size() - 1);
+        if (frame.inTail) {
+          frame.tail = value;
+        } else {
+          frame.items.add(value);
+        }
+        skipLayout();
+        final char separator = this.pos < this.clauseEnd ? this.window.get(this.pos) : '.';
+        this.pos++;
+        if (separator == ',' && !frame.inTail && frame.kind != Frame.PAREN) {
+          value = null;
+        } else if (separator == '|' && frame.kind == Frame.LIST && !frame.inTail) {
+          frame.inTail = true;
+          value = null;
+        } else if (separator == ')' && frame.kind == Frame.COMPOUND) {
+          stack.remove(stack.size() - 1);
+          value = new Struct<>(frame.functor, frame.items.toArray());
+        } else if (separator == ')' && frame.kind == Frame.PAREN) {
+          stack.remove(stack.size() - 1);
+          value = frame.items.get(0);
+        } else if (separator == ']' && frame.kind == Frame.LIST) {
+          stack.remove(stack.size() - 1);
+          value = list(frame.items, frame.inTail ? frame.tail : EMPTY_LIST);
+        } else {
+          this.pos--;
+          throw syntaxError("Unexpected " + (separator == '.' ? "end of clause" : "'" + separator + "'"));
+        }
+        if (value == null) {
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Parse an atomic term, or open a frame for a compound term.
+   *
+   * @return The term, or null when a frame was pushed
+   */
+  private Object parsePrimary(List<Frame> stack) {
+    skipLayout();
+    if (this.pos >= this.clauseEnd) {
+      throw syntaxError("Unexpected end of clause");
+    }
+    final CharBuffer buf = this.window;
+    final int start = this.pos;
+    final char c = buf.get(start);
+    if (isDigit(c) || (c == '-' && start + 1 < this.clauseEnd && isDigit(buf.get(start + 1)))) {
+      return parseNumber();
+    }
+    if (c == '_' || Character.isUpperCase(c)) {
+      final int end = scanAlphanumeric(start + 1);
+      this.pos = end;
+      return variable(symbol(buf, start, end));
+    }
+    final String name;
+    if (Character.isLetter(c)) {
+      final int end = scanAlphanumeric(start + 1);
+      name = symbol(buf, start, end);
+      this.pos = end;
+    } else if (c == '\'' || c == '"') {
+      name = parseQuoted();
+    } else if (SYMBOL_CHARS.indexOf(c) >= 0) {
+      int end = start + 1;
+      while (end < this.clauseEnd && SYMBOL_CHARS.indexOf(buf.get(end)) >= 0) {
+        end++;
+      }
+      name = symbol(buf, start, end);
+      this.pos = end;
+    } else if (c == '!' || c == ';') {
+      name = c == '!' ? Struct.FUNCTOR_CUT : Struct.FUNCTOR_SEMICOLON;
+      this.pos = start + 1;
+    } else if (c == '[') {
+      this.pos = start + 1;
+      skipLayout();
+      if (this.pos < this.clauseEnd && buf.get(this.pos) == ']') {
+        this.pos++;
+        return EMPTY_LIST;
+      }
+      stack.add(new Frame(Frame.LIST, null));
+      return null;
+    } else if (c == '(') {
+      this.pos = start + 1;
+      stack.add(new Frame(Frame.PAREN, null));
+      return null;
+    } else {
+      throw syntaxError("Unexpected '" + c + "'");
+    }
+    if (this.pos < this.clauseEnd && buf.get(this.pos) == '(') {
+      this.pos++;
+      stack.add(new Frame(Frame.COMPOUND, name));
+      return null;
+    }
+    return Struct.atom(name);
+  }
+
+  private Object variable(String name) {
+    //noinspection StringEquality - symbols are canonical
+    if (name == Var.ANONYMOUS_VAR_NAME) {
+      return Var.anon();
+    }
+    return this.clauseVars.computeIfAbsent(name, Var::anyVar);
+  }
+
+  private int scanAlphanumeric(int from) {
+    final CharBuffer buf = this.window;
+    int end = from;
+    while (end < this.clauseEnd) {
+      final char c = buf.get(end);
+      if (c == '_' || Character.isLetterOrDigit(c)) {
+        end++;
+      } else {
+        break;
+      }
+    }
+    return end;
+  }
+
+  private Object parseNumber() {
+    final CharBuffer buf = this.window;
+    final int start = this.pos;
+    int i = start;
+    final boolean negative = buf.get(i) == '-';
+    if (negative) {
+      i++;
+    }
+    long value = 0;
+    boolean overflow = false;
+    while (i < this.clauseEnd && isDigit(buf.get(i))) {
+      final int digit = buf.get(i) - '0';
+      // Accumulate negatively to reach Long.MIN_VALUE
+      if (value < (Long.MIN_VALUE + digit) / 10) {
+        overflow = true;
+      }
+      value = value * 10 - digit;
+      i++;
+    }
+    boolean decimal = false;
+    if (i + 1 < this.clauseEnd && buf.get(i) == '.' && isDigit(buf.get(i + 1))) {
+      decimal = true;
+      i += 2;
+      while (i < this.clauseEnd && isDigit(buf.get(i))) {
+        i++;
+      }
+    }
+    if (i < this.clauseEnd && (buf.get(i) == 'e' || buf.get(i) == 'E')) {
+      int exponent = i + 1;
+      if (exponent < this.clauseEnd && (buf.get(exponent) == '+' || buf.get(exponent) == '-')) {
+        exponent++;
+      }
+      if (exponent < this.clauseEnd && isDigit(buf.get(exponent))) {
+        decimal = true;
+        i = exponent;
+        while (i < this.clauseEnd && isDigit(buf.get(i))) {
+          i++;
+        }
+      }
+    }
+    this.pos = i;
+    if (decimal || overflow) {
+      return Double.parseDouble(buf.subSequence(start, i).toString());
+    }
+    if (!negative) {
+      if (value == Long.MIN_VALUE) {
+        return Double.parseDouble(buf.subSequence(start, i).toString());
+      }
+      value = -value;
+    }
+    if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+      return (int) value;
+    }
+    return value;
+  }
+
+  /**
+   * @return The symbol of the quoted name at the current position, which is moved after the closing quote
+   */
+  private String parseQuoted() {
+    final CharBuffer buf = this.window;
+    final char quote = buf.get(this.pos);
+    final int start = this.pos + 1;
+    int i = start;
+    boolean escaped = false;
+    while (i < this.clauseEnd) {
+      final char c = buf.get(i);
+      if (c == quote && !(i + 1 < this.clauseEnd && buf.get(i + 1) == quote)) {
+        break;
+      }
+      if (c == '\\' || c == quote) {
+        escaped = true;
+        i++;
+      }
+      i++;
+    }
+    if (i >= this.clauseEnd) {
+      throw syntaxError("Unterminated quoted atom");
+    }
+    this.pos = i + 1;
+    if (!escaped) {
+      return symbol(buf, start, i);
+    }
+    final StringBuilder sb = this.unescaped;
+    sb.setLength(0);
+    for (int j = start; j < i; j++) {
+      char c = buf.get(j);
+      if (c == quote) {
+        j++; // Doubled quote
+      } else if (c == '\\') {
+        c = buf.get(++j);
+        switch (c) {
+          case 'n' -> c = '\n';
+          case 't' -> c = '\t';
+          case 'r' -> c = '\r';
+          case '0' -> c = '\0';
+          case '\\', '\'', '"', '`' -> {
+          }
+          default -> {
+            this.pos = j;
+            throw syntaxError("Unknown escape sequence \\" + c);
+          }
+        }
+      }
+      sb.append(c);
+    }
+    return symbol(sb, 0, sb.length());
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static Struct<?> list(List<Object> elements, Object tail) {
+    Object list = tail;
+    for (int i = elements.size() - 1; i >= 0; i--) {
+      list = new Struct<>(LIST_FUNCTOR, elements.get(i), list);
+    }
+    return (Struct<?>) list;
+  }
+
+  /**
+   * @return The symbol for the characters [start, end) of text, recognized from the cache without creating a String.
+   */
+  private String symbol(CharSequence text, int start, int end) {
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + text.charAt(i);
+    }
+    final int slot = (hash * 0x9E3779B9) >>> (Integer.SIZE - Integer.numberOfTrailingZeros(SYMBOL_CACHE_SIZE));
+    final String cached = this.cachedSymbols[slot];
+    if (cached != null && this.cachedHashes[slot] == hash && cached.length() == end - start) {
+      boolean same = true;
+      for (int i = start; i < end && same; i++) {
+        same = cached.charAt(i - start) == text.charAt(i);
+      }
+      if (same) {
+        return cached;
+      }
+    }
+    final String symbol = SymbolTable.symbol(text.subSequence(start, end));
+    this.cachedSymbols[slot] = symbol;
+    this.cachedHashes[slot] = hash;
+    return symbol;
+  }
+
+  private InvalidTermException syntaxError(String message) {
+    int errorLine = this.clauseLine;
+    final int at = Math.min(this.pos, this.limit);
+    for (int i = this.clauseStart; i < at; i++) {
+      if (this.window.get(i) == '\n') {
+        errorLine++;
+      }
+    }
+    final int excerptEnd = Math.min(this.clauseEnd, this.clauseStart + 80);
+    return new InvalidTermException(message + " at line " + errorLine + " in \"" + this.window.subSequence(this.clauseStart, excerptEnd) + '"');
+  }
+
+  // ---------------------------------------------------------------------------
+  // Mapped files
+  // ---------------------------------------------------------------------------
+
+  /**
+   * Decodes a file region by region of mapped memory, a character split across regions is decoded from the next one.
+   */
+  private static final class MappedSource implements Readable {
+    private static final long REGION_BYTES = 1L << 28;
+
+    private final FileChannel channel;
+    private final CharsetDecoder decoder;
+    private final long fileSize;
+    private long regionOffset = 0;
+    private MappedByteBuffer region;
+    private boolean flushed = false;
+
+    MappedSource(FileChannel channel, Charset charset) throws IOException {
+      this.channel = channel;
+      this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT);
+      this.fileSize = channel.size();
+    }
+
+    @Override
+    public int read(CharBuffer target) throws IOException {
+      final int before = target.position();
+      while (target.hasRemaining()) {
+        final ByteBuffer bytes = region();
+        if (bytes == null) {
+          if (!this.flushed) {
+            this.decoder.decode(ByteBuffer.allocate(0), target, true);
+            this.flushed = this.decoder.flush(target).isUnderflow();
+          }
+          break;
+        }
+        final boolean last = this.regionOffset + bytes.limit() == this.fileSize;
+        final CoderResult result = this.decoder.decode(bytes, target, last);
+        if (result.isError()) {
+          try {
+            result.throwException();
+          } catch (CharacterCodingException e) {
+            throw new IOException("Cannot decode at byte " + (this.regionOffset + bytes.position()), e);
+          }
+        }
+        if (result.isUnderflow() && !last) {
+          // Remap from the first undecoded byte
+          this.regionOffset += bytes.position();
+          this.region = null;
+          if (bytes.position() == 0) {
+            throw new IOException("Cannot decode at byte " + this.regionOffset);
+          }
+        } else if (result.isOverflow()) {
+          break;
+        } else {
+          this.regionOffset += bytes.limit();
+          this.region = null;
+        }
+      }
+      final int read = target.position() - before;
+      return read == 0 && this.flushed ? -1 : read;
+    }
+
+    private ByteBuffer region() throws IOException {
+      if (this.region == null && this.regionOffset < this.fileSize) {
+        final long length = Math.min(REGION_BYTES, this.fileSize - this.regionOffset);
+        this.region = this.channel.map(FileChannel.MapMode.READ_ONLY, this.regionOffset, length);
+      }
+      return this.region;
+    }
+  }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import java.util.Arrays;
+
+/**
+ * Explicit work stack for depth-first traversal of {@link Struct}s without recursion on the Java stack, so that
+ * very deep terms (such as long lists made of nested '.'(H,T)) cannot cause a {@link StackOverflowError}.
+ * <p>
+ * There are two stacks:
+ * <ul>
+ * <li>Frames: the {@link Struct}s being traversed, each with the index of its next argument to visit, see {@link #nextArg()}</li>
+ * <li>Values: any intermediate results, such as already-transformed arguments waiting for their parent to be rebuilt</li>
+ * </ul>
+ * In addition, marks record the first term seen with each {@link Term} index, see {@link #mark(int, Object)}.
+ * Instances are pooled per thread: always {@link #acquire()} then {@link #release()} in a finally block.
+ * A nested traversal on the same thread (e.g. from a callback) obtains a fresh instance.
+ */
+final class TermStack {
+  private static final int INITIAL_CAPACITY = 32;
+
+  /**
+   * Stacks that grew beyond this capacity are not kept in the pool, to avoid retaining large arrays per thread.
+   */
+  private static final int MAX_POOLED_CAPACITY = 4096;
+
+  private static final ThreadLocal<TermStack> POOL = ThreadLocal.withInitial(TermStack::new);
+
+  private Struct<?>[] structs = new Struct<?>[INITIAL_CAPACITY];
+  private int[] positions = new int[INITIAL_CAPACITY];
+  private int depth = 0;
+
+  private Object[] values = new Object[INITIAL_CAPACITY];
+  private int nbValues = 0;
+
+  /**
+   * First term marked with each index, only the elements below nbMarks may be non-null.
+   */
+  private Object[] marks = new Object[INITIAL_CAPACITY];
+  private int nbMarks = 0;
+
+  private boolean inUse = false;
+
+  private TermStack() {
+    // Use acquire()
+  }
+
+  /**
+   * @return A cleared stack, must be given back with {@link #release()}
+   */
+  static TermStack acquire() {
+    final TermStack pooled = POOL.get();
+    if (pooled.inUse) {
+      // Reentrant traversal on this thread
+      return new TermStack();
+    }
+    pooled.inUse = true;
+    return pooled;
+  }
+
+  /**
+   * Clear all references still held (popping clears the others), and give this stack back to the pool.
+   */
+  void release() {
+    if (this.depth > 0) {
+      Arrays.fill(this.structs, 0, this.depth, null);
+      this.depth = 0;
+    }
+    if (this.nbValues > 0) {
+      Arrays.fill(this.values, 0, this.nbValues, null);
+      this.nbValues = 0;
+    }
+    if (this.nbMarks > 0) {
+      Arrays.fill(this.marks, 0, this.nbMarks, null);
+      this.nbMarks = 0;
+    }
+    if (this.structs.length > MAX_POOLED_CAPACITY) {
+      this.structs = new Struct<?>[INITIAL_CAPACITY];
+      this.positions = new int[INITIAL_CAPACITY];
+    }
+    if (this.values.length > MAX_POOLED_CAPACITY) {
+      this.values = new Object[INITIAL_CAPACITY];
+    }
+    if (this.marks.length > MAX_POOLED_CAPACITY) {
+      this.marks = new Object[INITIAL_CAPACITY];
+    }
+    this.inUse = false;
+  }
+
+  // ---------------------------------------------------------------------------
+  // Frames
+  // ---------------------------------------------------------------------------
+
+  void push(Struct<?> struct) {
+    if (this.depth == this.structs.length) {
+      final int newCapacity = this.depth * 2;
+      this.structs = Arrays.copyOf(this.structs, newCapacity);
+      this.positions = Arrays.copyOf(this.positions, newCapacity);
+    }
+    this.structs[this.depth] = struct;
+    this.positions[this.depth] = 0;
+    this.depth++;
+  }
+
+  Struct<?> pop() {
+    final Struct<?> struct = this.structs[--this.depth];
+    this.structs[this.depth] = null;
+    return struct;
+  }
+
+  boolean isEmpty() {
+    return this.depth == 0;
+  }
+
+  /**
+   * @return The index of the argument that the next call to {@link #nextArg()} will return, for the {@link Struct} on top.
+   */
+  int nextArgIndex() {
+    return this.positions[this.depth - 1];
+  }
+
+  /**
+   * Advance the traversal of the {@link Struct} on top of the stack by one argument.
+   *
+   * @return Its next argument, or null when all have been visited: the caller should then {@link #pop()} it.
+   */
+  Object nextArg() {
+    final int top = this.depth - 1;
+    final Struct<?> struct = this.structs[top];
+    final int position = this.positions[top];
+    if (position < struct.getArity()) {
+      this.positions[top] = position + 1;
+      return struct.getArg(position);
+    }
+    return null;
+  }
+
+  // ---------------------------------------------------------------------------
+  // Values
+  // ---------------------------------------------------------------------------
+
+  void pushValue(Object value) {
+    if (this.nbValues == this.values.length) {
+      this.values = Arrays.copyOf(this.values, this.nbValues * 2);
+    }
+    this.values[this.nbValues++] = value;
+  }
+
+  Object popValue() {
+    final Object value = this.values[--this.nbValues];
+    this.values[this.nbValues] = null;
+    return value;
+  }
+
+  int nbValues() {
+    return this.nbValues;
+  }
+
+  Object valueAt(int position) {
+    return this.values[position];
+  }
+
+  /**
+   * Remove the topmost values, starting at position.
+   *
+   * @param position
+   * @return The removed values, in the order they were pushed.
+   */
+  Object[] popValuesFrom(int position) {
+    final Object[] popped = Arrays.copyOfRange(this.values, position, this.nbValues);
+    dropValuesFrom(position);
+    return popped;
+  }
+
+  /**
+   * Discard the topmost values, starting at position.
+   *
+   * @param position
+   */
+  void dropValuesFrom(int position) {
+    Arrays.fill(this.values, position, this.nbValues, null);
+    this.nbValues = position;
+  }
+
+  // ---------------------------------------------------------------------------
+  // Marks
+  // ---------------------------------------------------------------------------
+
+  /**
+   * Mark an index as seen with a term, unless it was already marked.
+   *
+   * @param index A non-negative {@link Term} index
+   * @param term
+   * @return null if index was not marked before, otherwise the term it was first marked with,
+   * which may differ from term when terms normalized separately are traversed together.
+   */
+  Object mark(int index, Object term) {
+    if (index >= this.marks.length) {
+      this.marks = Arrays.copyOf(this.marks, Math.max(index + 1, this.marks.length * 2));
+    }
+    if (index >= this.nbMarks) {
+      this.nbMarks = index + 1;
+    }
+    final Object marked = this.marks[index];
+    if (marked == null) {
+      this.marks[index] = term;
+    }
+    return marked;
+  }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import static org.logic2j.engine.model.Struct.QUOTE;
+import static org.logic2j.engine.model.TermApiLocator.termApi;
+
+import java.io.IOException;
+
+/**
+ * Formats terms into a caller-supplied {@link Appendable}, such as a {@link java.io.Writer} or a {@link StringBuilder},
+ * producing the same text as their toString(): a whole term is written in a single pass, without creating intermediate
+ * Strings for its sub-terms, and functors are quoted directly into the output when needed
+ * (see {@link TermApi#quoteIfNeeded(CharSequence)}).
+ * Not thread-safe, but cheap to instantiate.
+ */
+public final class TermWriter {
+  private final Appendable out;
+  private final TermApi termApi;
+
+  /**
+   * Non-null when out is a StringBuilder, to append numbers without converting them to Strings first.
+   */
+  private final StringBuilder builder;
+
+  public TermWriter(Appendable out) {
+    this(out, termApi());
+  }
+
+  /**
+   * @param out
+   * @param termApi Decides which functors need quoting
+   */
+  public TermWriter(Appendable out, TermApi termApi) {
+    this.out = out;
+    this.termApi = termApi;
+    this.builder = out instanceof StringBuilder sb ? sb : null;
+  }
+
+  /**
+   * @param term Any term, instances of subclasses of {@link Struct} are formatted by their own toString()
+   * @return this
+   * @throws IOException From the underlying {@link Appendable}
+   */
+  public TermWriter write(Object term) throws IOException {
+    if (term != null && term.getClass() == Struct.class) {
+      writeStruct((Struct<?>) term);
+    } else {
+      writeAtomic(term);
+    }
+    return this;
+  }
+
+  /**
+   * Write raw text, such as separators between terms.
+   *
+   * @return this
+   */
+  public TermWriter append(CharSequence text) throws IOException {
+    this.out.append(text);
+    return this;
+  }
+
+  public Appendable getOut() {
+    return this.out;
+  }
+
+  /**
+   * Format struct in this pass even if it is an instance of a subclass, nested ones are formatted by their own toString().
+   */
+  void writeStruct(Struct<?> struct) throws IOException {
+    final TermStack stack = TermStack.acquire();
+    try {
+      writeFunctor(struct);
+      stack.push(struct);
+      while (!stack.isEmpty()) {
+        final int c = stack.nextArgIndex();
+        final Object arg = stack.nextArg();
+        if (arg == null) {
+          if (stack.pop().getArity() > 0) {
+            this.out.append(Struct.PAR_CLOSE);
+          }
+          continue;
+        }
+        if (c > 0) {
+          this.out.append(Struct.ARG_SEPARATOR);
+        }
+        if (arg.getClass() == Struct.class) {
+          final Struct<?> child = (Struct<?>) arg;
+          writeFunctor(child);
+          stack.push(child);
+        } else {
+          // Including subclasses of Struct, formatted by their own toString()
+          writeAtomic(arg);
+        }
+      }
+    } finally {
+      stack.release();
+    }
+  }
+
+  private void writeFunctor(Struct<?> struct) throws IOException {
+    final String name = struct.getName();
+    if (this.termApi.needsQuote(name)) {
+      appendQuoted(this.out, name);
+    } else {
+      this.out.append(name);
+    }
+    if (struct.getArity() > 0) {
+      this.out.append(Struct.PAR_OPEN);
+    }
+  }
+
+  private void writeAtomic(Object term) throws IOException {
+    if (this.builder != null) {
+      switch (term) {
+        case Integer value -> this.builder.append(value.intValue());
+        case Long value -> this.builder.append(value.longValue());
+        case Double value -> this.builder.append(value.doubleValue());
+        case null, default -> this.builder.append(term);
+      }
+      return;
+    }
+    this.out.append(term instanceof CharSequence text ? text : String.valueOf(term));
+  }
+
+  /**
+   * Append text between quotes, doubling quotes and backslashes, and escaping line breaks.
+   * Unescaped runs of characters are appended at once.
+   */
+  static void appendQuoted(Appendable out, CharSequence text) throws IOException {
+    out.append(QUOTE);
+    int runStart = 0;
+    final int length = text.length();
+    for (int i = 0; i < length; i++) {
+      final char c = text.charAt(i);
+      final String escape = switch (c) {
+        case '\n' -> "\\n";
+        case '\r' -> "\\r";
+        case QUOTE -> "''";
+        case '\\' -> "\\\\";
+        default -> null;
+      };
+      if (escape != null) {
+        out.append(text, runStart, i);
+        out.append(escape);
+        runStart = i + 1;
+      }
+    }
+    out.append(text, runStart, length);
+    out.append(QUOTE);
+  }
+
+}
@@ -100,7 +100,7 @@ public class Var<T> extends Term implements Binding<T>, Comparable<Var<T>> {
    *
    * @param varName is the name
    * @throws InvalidTermException if n is not a valid Prolog variable name
-   * Note: Internally the {@link #name} is {@link String#intern()}alized so it's OK to compare by reference.
+   * Note: Internally the {@link #name} is a symbol from the {@link SymbolTable} so it's OK to compare by reference.
    */
   public Var(Class<T> type, CharSequence varName) {
     if (varName == null) {
@@ -110,7 +110,7 @@ public class Var<T> extends Term implements Binding<T>, Comparable<Var<T>> {
     if (str.trim().isEmpty()) {
       throw new InvalidTermException("Name of a variable may not be the empty or whitespace String");
     }
-    this.name = str.intern();
+    this.name = SymbolTable.symbol(str);
     //noinspection StringEquality - we internalized strings, so it is licit to copmare references
     if (this.name == Var.ANONYMOUS_VAR_NAME) {
       throw new InvalidTermException("Must not instantiate an anonymous variable (which is a singleton)!");
@@ -219,7 +219,7 @@ public class Var<T> extends Term implements Binding<T>, Comparable<Var<T>> {
   /**
    * Gets the name of the variable.
    * <p>
-   * Note: Names are {@link String#intern()}alized so OK to check by reference (with ==)
+   * Note: Names are symbols (see {@link SymbolTable}) so OK to check by reference (with ==)
    */
   public String getName() {
     return this.name;
@@ -235,7 +235,7 @@ public class Var<T> extends Term implements Binding<T>, Comparable<Var<T>> {
    */
   public boolean isAnon() {
     //noinspection StringEquality - we internalized strings, so it is licit to copmare references
-    return this == ANONYMOUS_VAR || this.name == ANONYMOUS_VAR_NAME; // Names are {@link String#intern()}alized so OK to check by reference
+    return this == ANONYMOUS_VAR || this.name == ANONYMOUS_VAR_NAME; // Names are symbols (see {@link SymbolTable}) so OK to check by reference
   }
 
 
@@ -253,32 +253,46 @@ public class Var<T> extends Term implements Binding<T>, Comparable<Var<T>> {
   // ---------------------------------------------------------------------------
 
   /**
-   * Just add this to collectedTerms and set Term#index to {@link Term#NO_INDEX}.
+   * Just add this to collectedTerms and set Term#index to {@link Term#NO_INDEX}, unless frozen.
    *
    * @param collectedTerms
    */
   void collectTermsInto(Collection<Object> collectedTerms) {
-    clearIndex();
+    if (!isFrozen()) {
+      clearIndex();
+    }
     collectedTerms.add(this);
   }
 
 
-  Object factorize(Collection<Object> collectedTerms) {
-    // If this term already has an equivalent in the provided collection, return that one
-    final Object alreadyThere = findStructurallyEqualWithin(collectedTerms);
-    if (alreadyThere != null) {
-      return alreadyThere;
+  /**
+   * Set Term#index to {@link Term#NO_INDEX} and obtain the canonical {@link Var} from the table.
+   * Two distinct {@link Var}s are never structurally equal, so we match variables by their name.
+   * A frozen {@link Var} keeps its index: within another term it is replaced by a new one of the same name, to be indexed
+   * in that term. At the root, {@link TermApi#factorize(Object)} returns it unchanged.
+   *
+   * @param table
+   */
+  Object factorize(FactorizationTable table) {
+    if (isFrozen()) {
+      return table.canonical(new Var<>(this.type, this.name));
     }
-    // Not found by structural equality, we match variables by their name
-    // TODO I'm not actually sure why we do this - we should probably log and identify why this case
-    for (final Object term : collectedTerms) {
-      if (term instanceof Var<?> var) {
-        if (getName().equals(var.getName())) {
-          return var;
-        }
-      }
+    clearIndex();
+    return table.canonical(this);
+  }
+
+  /**
+   * Freeze this variable with its index, see {@link TermApi#freeze(Object)}. The anonymous variable is a shared singleton
+   * that is never frozen.
+   */
+  void freeze() {
+    if (isAnon() || isFrozen()) {
+      return;
     }
-    return this;
+    if (!hasIndex()) {
+      throw new InvalidTermException("Cannot freeze " + this + ", it must be normalized");
+    }
+    markFrozen();
   }
 
   /**
@@ -313,9 +327,13 @@ public class Var<T> extends Term implements Binding<T>, Comparable<Var<T>> {
   // Methods of java.lang.Object
   // ---------------------------------------------------------------------------
 
+  /**
+   * Only depends on the name, not on the index, which changes during normalization: this allows {@link Struct}s
+   * to cache their hash code. Consistent with {@link #equals(Object)}.
+   */
   @Override
   public int hashCode() {
-    return this.name.hashCode() ^ this.getIndex();
+    return this.name.hashCode();
   }
 
   /**
@@ -330,7 +348,7 @@ public class Var<T> extends Term implements Binding<T>, Comparable<Var<T>> {
       return false;
     }
     //noinspection StringEquality - we internalized strings, so it is licit to copmare references
-    return this.getName() == that.getName() && this.getIndex() == that.getIndex(); // Names are {@link String#intern()}alized so OK to check by reference
+    return this.getName() == that.getName() && this.getIndex() == that.getIndex(); // Names are symbols (see {@link SymbolTable}) so OK to check by reference
   }
 
   @Override
@@ -0,0 +1,149 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.unify;
+
+import static org.logic2j.engine.model.TermApiLocator.termApi;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import org.logic2j.engine.model.Struct;
+import org.logic2j.engine.model.TermApi;
+import org.logic2j.engine.model.Var;
+
+/**
+ * A clause held as a skeleton, to be instantiated by structure sharing instead of being copied.
+ * The skeleton is normalized and frozen once: the variable of index i of an instance lives in slot (base + i)
+ * of a {@link VarBindings}, so renaming the clause apart for a new use only allocates a frame of slots,
+ * whatever the size of the clause. The instance is the pair (skeleton, base), materialized only on demand
+ * with {@link VarBindings#resolve(Object, int)}.
+ * <p>
+ * A term with the functor {@value Struct#FUNCTOR_CLAUSE}/2 is a rule, with a head and a body; any other term is a fact.
+ * Instances are immutable and can be shared by threads, each one using its own {@link VarBindings}.
+ */
+public final class Clause {
+  private final Object term;
+  private final Object head;
+  private final Object body;
+  private final int varCount;
+
+  /**
+   * @param term Copied, and the copy is normalized with {@link TermApi#normalize(Object)} then frozen with
+   * {@link TermApi#freeze(Object)}: term itself is left unchanged, and its indexes, if any, are not trusted
+   * as it may be a sub-term indexed within another term.
+   */
+  public Clause(Object term) {
+    this(term, termApi());
+  }
+
+  /**
+   * @param term See {@link #Clause(Object)}
+   * @param termApi For normalization
+   */
+  public Clause(Object term, TermApi termApi) {
+    this.term = termApi.freeze(termApi.normalize(copyOf(term, termApi)));
+    //noinspection StringEquality - we internalized strings, so it is licit to compare references
+    if (this.term instanceof Struct<?> struct && struct.getArity() == 2 && struct.getName() == Struct.FUNCTOR_CLAUSE) {
+      this.head = struct.getLHS();
+      this.body = struct.getRHS();
+    } else {
+      this.head = this.term;
+      this.body = null;
+    }
+    this.varCount = VarBindings.varCount(this.term);
+  }
+
+  /**
+   * @return A copy of term with new {@link Struct}s and {@link Var}s, so that normalizing and freezing it has no effect on term
+   */
+  private static Object copyOf(Object term, TermApi termApi) {
+    final Map<Var<?>, Var<?>> vars = new IdentityHashMap<>();
+    if (term instanceof Var<?> var) {
+      return copyOf(var, vars);
+    }
+    return termApi.depthFirstStructTransform(term, struct -> {
+      final Object[] args = new Object[struct.getArity()];
+      for (int i = 0; i < args.length; i++) {
+        final Object arg = struct.getArg(i);
+        args[i] = arg instanceof Var<?> var ? copyOf(var, vars) : arg;
+      }
+      return new Struct<>(struct.getName(), args);
+    });
+  }
+
+  private static Var<?> copyOf(Var<?> var, Map<Var<?>, Var<?>> vars) {
+    return var.isAnon() ? var : vars.computeIfAbsent(var, original -> new Var<>(original.getType(), original.getName()));
+  }
+
+  /**
+   * Rename this clause apart: allocate free slots for its variables.
+   *
+   * @param bindings
+   * @return Base of the frame of the new instance, to be used with {@link #getHead()}, {@link #getBody()} and {@link #getTerm()}
+   */
+  public int instantiate(VarBindings bindings) {
+    return bindings.newFrame(this.varCount);
+  }
+
+  /**
+   * Unify a goal with the head of the instance at base.
+   *
+   * @param unifier
+   * @param goal
+   * @param goalBase Base of the frame of goal's variables
+   * @param base Base of an instance of this clause, see {@link #instantiate(VarBindings)}
+   * @return See {@link Unifier#unify(Object, int, Object, int)}
+   */
+  public boolean unifyHead(Unifier unifier, Object goal, int goalBase, int base) {
+    return unifier.unify(goal, goalBase, this.head, base);
+  }
+
+  /**
+   * @return The whole skeleton, normalized and frozen
+   */
+  public Object getTerm() {
+    return this.term;
+  }
+
+  public Object getHead() {
+    return this.head;
+  }
+
+  /**
+   * @return The body of a rule, null for a fact
+   */
+  public Object getBody() {
+    return this.body;
+  }
+
+  public boolean isFact() {
+    return this.body == null;
+  }
+
+  /**
+   * @return Number of slots of a frame
+   */
+  public int getVarCount() {
+    return this.varCount;
+  }
+
+  @Override
+  public String toString() {
+    return this.term.toString();
+  }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.unify;
+
+import java.util.Arrays;
+import org.logic2j.engine.model.Struct;
+import org.logic2j.engine.model.Var;
+
+/**
+ * Unification of normalized terms, binding their variables in {@link VarBindings}.
+ * Each term is given with the base of the frame holding its variables, so clauses are never copied:
+ * allocate a frame with {@link VarBindings#newFrame(Object)} and unify the clause in it.
+ * <p>
+ * Unification is iterative with a reusable work stack, and does not allocate once the stack and the
+ * bindings have grown to the size needed. Atoms and other Java objects unify when they are equal,
+ * compounds when they have the same functor and their arguments unify. There is no occurs check,
+ * as in standard Prolog. The anonymous variable unifies with anything and is never bound.
+ * Instances are not thread-safe.
+ */
+public final class Unifier {
+  private final VarBindings bindings;
+
+  // Pairs of (term, base) remaining to unify, as parallel arrays
+  private Object[] pendingTerms = new Object[32];
+  private int[] pendingBases = new int[32];
+  private int pendingTop = 0;
+
+  private final VarBindings.Deref left = new VarBindings.Deref();
+  private final VarBindings.Deref right = new VarBindings.Deref();
+
+  public Unifier() {
+    this(new VarBindings());
+  }
+
+  public Unifier(VarBindings bindings) {
+    this.bindings = bindings;
+  }
+
+  public VarBindings getBindings() {
+    return this.bindings;
+  }
+
+  /**
+   * Unify two terms, each with the variables of its own frame.
+   *
+   * @param term1
+   * @param base1 Base of the frame of term1's variables
+   * @param term2
+   * @param base2 Base of the frame of term2's variables
+   * @return true if the terms unify, with the bindings recorded on the trail.
+   * false otherwise, and then no binding remains from this invocation.
+   */
+  public boolean unify(Object term1, int base1, Object term2, int base2) {
+    final VarBindings vars = this.bindings;
+    final int mark = vars.mark();
+    this.pendingTop = 0;
+    push(term1, base1, term2, base2);
+    while (this.pendingTop > 0) {
+      final int i = this.pendingTop -= 2;
+      final int slot1 = vars.deref(this.pendingTerms[i], this.pendingBases[i], this.left);
+      final int slot2 = vars.deref(this.pendingTerms[i + 1], this.pendingBases[i + 1], this.right);
+      // Don't retain terms from an earlier unification
+      this.pendingTerms[i] = null;
+      this.pendingTerms[i + 1] = null;
+      final Object t1 = this.left.term;
+      final Object t2 = this.right.term;
+      if (slot1 >= 0) {
+        if (slot2 >= 0) {
+          // Two free variables: bind the most recent one so that older frames never refer to newer ones
+          if (slot1 > slot2) {
+            vars.bind(slot1, t2, this.right.base);
+          } else if (slot2 > slot1) {
+            vars.bind(slot2, t1, this.left.base);
+          }
+        } else if (!isAnon(t2)) {
+          vars.bind(slot1, t2, this.right.base);
+        }
+      } else if (slot2 >= 0) {
+        if (!isAnon(t1)) {
+          vars.bind(slot2, t1, this.left.base);
+        }
+      } else if (t1 instanceof Struct<?> s1 && t2 instanceof Struct<?> s2) {
+        if (s1 == s2 && (this.left.base == this.right.base || s1.isGround())) {
+          continue;
+        }
+        // Signatures are canonical: same name and arity in one reference comparison
+        if (s1.getSignature() != s2.getSignature()) {
+          return fail(mark);
+        }
+        final int arity = s1.getArity();
+        // Push in reverse so that arguments are unified left to right
+        for (int j = arity - 1; j >= 0; j--) {
+          push(s1.getArg(j), this.left.base, s2.getArg(j), this.right.base);
+        }
+      } else if (!isAnon(t1) && !isAnon(t2) && !t1.equals(t2)) {
+        return fail(mark);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Unify two terms, both with variables in the frame at base.
+   *
+   * @return See {@link #unify(Object, int, Object, int)}
+   */
+  public boolean unify(Object term1, Object term2, int base) {
+    return unify(term1, base, term2, base);
+  }
+
+  private boolean fail(int mark) {
+    Arrays.fill(this.pendingTerms, 0, this.pendingTop, null);
+    this.pendingTop = 0;
+    this.bindings.undo(mark);
+    return false;
+  }
+
+  private void push(Object term1, int base1, Object term2, int base2) {
+    int i = this.pendingTop;
+    if (i + 2 > this.pendingTerms.length) {
+      this.pendingTerms = Arrays.copyOf(this.pendingTerms, this.pendingTerms.length * 2);
+      this.pendingBases = Arrays.copyOf(this.pendingBases, this.pendingBases.length * 2);
+    }
+    this.pendingTerms[i] = term1;
+    this.pendingBases[i] = base1;
+    this.pendingTerms[i + 1] = term2;
+    this.pendingBases[i + 1] = base2;
+    this.pendingTop = i + 2;
+  }
+
+  private static boolean isAnon(Object term) {
+    return term instanceof Var<?> var && var.isAnon();
+  }
+
+}
@@ -0,0 +1,330 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.unify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.logic2j.engine.exception.InvalidTermException;
+import org.logic2j.engine.model.Struct;
+import org.logic2j.engine.model.Var;
+
+/**
+ * Values of variables, in one flat array of slots. A normalized term (see {@link org.logic2j.engine.model.TermApi#normalize(Object)})
+ * is used without copying it by allocating a frame of consecutive slots for its variables: the variable of
+ * index i is then in slot (base + i), where base is the first slot of the frame. The same term can have
+ * several frames, each one being an independent instance of it.
+ * <p>
+ * A bound slot holds a term together with the base of the frame of its variables.
+ * Every binding is recorded on a trail, so that bindings are undone in reverse order down to a {@link #mark()}.
+ * Frames are allocated and released in stack order.
+ * <p>
+ * Arrays only grow, binding and undoing do not allocate. Instances are not thread-safe.
+ */
+public final class VarBindings {
+  static final int DEFAULT_SLOTS = 256;
+
+  /**
+   * Term bound to each slot, null when free
+   */
+  private Object[] values;
+
+  /**
+   * Base of the frame of the term bound to each slot
+   */
+  private int[] bases;
+
+  /**
+   * First free slot, frames are below
+   */
+  private int top = 0;
+
+  /**
+   * Slots in order of binding
+   */
+  private int[] trail;
+  private int trailTop = 0;
+
+  public VarBindings() {
+    this(DEFAULT_SLOTS);
+  }
+
+  public VarBindings(int initialSlots) {
+    final int capacity = Math.max(initialSlots, 1);
+    this.values = new Object[capacity];
+    this.bases = new int[capacity];
+    this.trail = new int[capacity];
+  }
+
+  /**
+   * @param term A normalized term
+   * @return Number of slots needed by the variables of term: the index of a root {@link Struct}
+   * is the number of its variables, a {@link Var} needs the slots up to its own index.
+   * @throws InvalidTermException If term was not normalized
+   */
+  public static int varCount(Object term) {
+    if (term instanceof Struct<?> struct) {
+      if (!struct.hasIndex()) {
+        throw new InvalidTermException("Struct " + struct + " has no index, it must be normalized");
+      }
+      return struct.getIndex();
+    }
+    if (term instanceof Var<?> var) {
+      if (var.isAnon()) {
+        return 0;
+      }
+      if (!var.hasIndex()) {
+        throw new InvalidTermException("Var " + var + " has no index, it must be normalized");
+      }
+      return var.getIndex() + 1;
+    }
+    return 0;
+  }
+
+  /**
+   * Allocate free slots for the variables of term.
+   *
+   * @param term A normalized term
+   * @return Base of the frame
+   */
+  public int newFrame(Object term) {
+    return newFrame(varCount(term));
+  }
+
+  /**
+   * @param nbSlots
+   * @return Base of a new frame of nbSlots free slots
+   */
+  public int newFrame(int nbSlots) {
+    final int base = this.top;
+    final int newTop = base + nbSlots;
+    if (newTop > this.values.length) {
+      final int capacity = Math.max(newTop, this.values.length * 2);
+      this.values = Arrays.copyOf(this.values, capacity);
+      this.bases = Arrays.copyOf(this.bases, capacity);
+    }
+    this.top = newTop;
+    return base;
+  }
+
+  /**
+   * Release the frame at base and all frames allocated after it. Their slots must be free,
+   * that is bindings made since they were allocated must have been undone.
+   *
+   * @param base
+   */
+  public void releaseFrames(int base) {
+    if (base < 0 || base > this.top) {
+      throw new IllegalArgumentException("No frame at " + base + ", top is " + this.top);
+    }
+    this.top = base;
+  }
+
+  /**
+   * @return First free slot
+   */
+  public int getTop() {
+    return this.top;
+  }
+
+  /**
+   * @return Mark to undo bindings made from now on, with {@link #undo(int)}
+   */
+  public int mark() {
+    return this.trailTop;
+  }
+
+  /**
+   * Free the slots bound since mark, in reverse order.
+   *
+   * @param mark Obtained from {@link #mark()}
+   */
+  public void undo(int mark) {
+    final Object[] slotValues = this.values;
+    final int[] slots = this.trail;
+    for (int i = this.trailTop - 1; i >= mark; i--) {
+      slotValues[slots[i]] = null;
+    }
+    this.trailTop = mark;
+  }
+
+  /**
+   * @return Number of bindings on the trail
+   */
+  public int getTrailSize() {
+    return this.trailTop;
+  }
+
+  /**
+   * @param var A non-anonymous, indexed variable
+   * @param base Base of the frame of var
+   * @return true if the slot of var holds a value, possibly another free variable
+   */
+  public boolean isBound(Var<?> var, int base) {
+    return this.values[slot(var, base)] != null;
+  }
+
+  /**
+   * @return Slot of var in the frame at base
+   * @throws InvalidTermException If var was not normalized
+   */
+  static int slot(Var<?> var, int base) {
+    final int index = var.getIndex();
+    if (index < 0) {
+      throw new InvalidTermException("Var " + var + " has no index, it must be normalized");
+    }
+    return base + index;
+  }
+
+  /**
+   * Bind a free slot to term whose variables are in the frame at base.
+   */
+  void bind(int slot, Object term, int base) {
+    this.values[slot] = term;
+    this.bases[slot] = base;
+    if (this.trailTop == this.trail.length) {
+      this.trail = Arrays.copyOf(this.trail, this.trail.length * 2);
+    }
+    this.trail[this.trailTop++] = slot;
+  }
+
+  /**
+   * Follow bindings from a variable of the frame at base, up to a value that is not a bound variable.
+   *
+   * @param term
+   * @param base
+   * @return The slot of the final free variable, or -1 if the final term is not a free variable
+   * (including the anonymous variable). The final term and its base are read with {@link Deref}.
+   */
+  int deref(Object term, int base, Deref into) {
+    while (term instanceof Var<?> var && !var.isAnon()) {
+      final int slot = slot(var, base);
+      final Object value = this.values[slot];
+      if (value == null) {
+        into.term = term;
+        into.base = base;
+        return slot;
+      }
+      term = value;
+      base = this.bases[slot];
+    }
+    into.term = term;
+    into.base = base;
+    return -1;
+  }
+
+  /**
+   * Mutable result of {@link #deref(Object, int, Deref)}, reused to avoid allocating.
+   */
+  static final class Deref {
+    Object term;
+    int base;
+  }
+
+  // ---------------------------------------------------------------------------
+  // Reading values
+  // ---------------------------------------------------------------------------
+
+  /**
+   * @param var A non-anonymous variable
+   * @param base Base of the frame of var
+   * @return The value of var with all bound variables replaced, see {@link #resolve(Object, int)}
+   */
+  public Object valueOf(Var<?> var, int base) {
+    return resolve(var, base);
+  }
+
+  /**
+   * Build the instance of term in the frame at base: variables are replaced by their values, recursively.
+   * Free variables are left as the original {@link Var}s, so they should be looked at in their frame
+   * when several frames are involved. Sub-terms without bound variables are shared, not copied.
+   *
+   * @param term
+   * @param base
+   * @return The instantiated term
+   */
+  public Object resolve(Object term, int base) {
+    final Deref deref = new Deref();
+    deref(term, base, deref);
+    if (!(deref.term instanceof Struct<?> root) || root.isGround()) {
+      return deref.term;
+    }
+    // Iterative traversal, as lists can be very long
+    final List<Resolving> stack = new ArrayList<>();
+    stack.add(new Resolving(root, deref.base));
+    Object result = null;
+    while (!stack.isEmpty()) {
+      final Resolving current = stack.get(stack.size() - 1);
+      if (result != null) {
+        current.setResolved(result);
+        result = null;
+      }
+      if (current.argIndex == current.struct.getArity()) {
+        stack.remove(stack.size() - 1);
+        result = current.build();
+        continue;
+      }
+      deref(current.struct.getArg(current.argIndex), current.base, deref);
+      if (deref.term instanceof Struct<?> struct && !struct.isGround()) {
+        stack.add(new Resolving(struct, deref.base));
+      } else {
+        current.setResolved(deref.term);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * A compound being resolved, argument by argument.
+   */
+  private static final class Resolving {
+    final Struct<?> struct;
+    final int base;
+    int argIndex = 0;
+    Object[] newArgs; // Allocated on the first argument that differs
+
+    Resolving(Struct<?> struct, int base) {
+      this.struct = struct;
+      this.base = base;
+    }
+
+    void setResolved(Object value) {
+      final Object original = this.struct.getArg(this.argIndex);
+      if (this.newArgs == null && value != original) {
+        this.newArgs = new Object[this.struct.getArity()];
+        for (int i = 0; i < this.argIndex; i++) {
+          this.newArgs[i] = this.struct.getArg(i);
+        }
+      }
+      if (this.newArgs != null) {
+        this.newArgs[this.argIndex] = value;
+      }
+      this.argIndex++;
+    }
+
+    Object build() {
+      return this.newArgs == null ? this.struct : new Struct<>(this.struct.getName(), this.newArgs);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return this.getClass().getSimpleName() + "(slots=" + this.top + ", trail=" + this.trailTop + ')';
+  }
+
+}
@@ -0,0 +1,162 @@
+package org.logic2j.api.result;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+public class StreamingResultsHolderTest {
+
+  /**
+   * Counts how many solutions were pulled from the source.
+   */
+  private final AtomicInteger pulled = new AtomicInteger();
+
+  private StreamingResultsHolder<Integer> solutions(int number) {
+    return StreamingResultsHolder.of(() -> IntStream.range(0, number).boxed().peek(i -> pulled.incrementAndGet()).spliterator());
+  }
+
+  @Test
+  public void existenceStopsAfterOne() {
+    final StreamingResultsHolder<Integer> holder = solutions(1_000_000);
+    assertThat(holder.isPresent()).isTrue();
+    assertThat(holder.isEmpty()).isFalse();
+    assertThat(holder.first()).contains(0);
+    assertThat(holder.get()).isEqualTo(0);
+    assertThat(holder.unique()).isEqualTo(0);
+    assertThat(pulled.get()).isEqualTo(5);
+  }
+
+  @Test
+  public void cardinalityStopsAfterTwo() {
+    final StreamingResultsHolder<Integer> holder = solutions(1_000_000);
+    assertThat(holder.isUnique()).isFalse();
+    assertThat(holder.isSingle()).isFalse();
+    assertThat(holder.isMultiple()).isTrue();
+    assertThat(pulled.get()).isEqualTo(6);
+  }
+
+  @Test
+  public void streaming() {
+    final StreamingResultsHolder<Integer> holder = solutions(1_000_000);
+    assertThat(holder.stream().skip(10).findFirst()).contains(10);
+    assertThat(holder.iterator().next()).isEqualTo(0);
+    assertThat(pulled.get()).isEqualTo(12);
+  }
+
+  @Test
+  public void empty() {
+    final StreamingResultsHolder<Integer> holder = solutions(0);
+    assertThat(holder.isPresent()).isFalse();
+    assertThat(holder.isUnique()).isFalse();
+    assertThat(holder.isSingle()).isTrue();
+    assertThat(holder.get()).isNull();
+    assertThat(holder.first()).isEmpty();
+    assertThat(holder.count()).isEqualTo(0);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void uniqueOfEmpty() {
+    solutions(0).unique();
+  }
+
+  @Test
+  public void materialize() {
+    final StreamingResultsHolder<Integer> holder = solutions(5);
+    assertThat(holder.count()).isEqualTo(5);
+    assertThat(holder.list()).containsExactly(0, 1, 2, 3, 4);
+    assertThat(holder.set()).hasSize(5);
+    assertThat(holder.max(Integer::compare)).contains(4);
+  }
+
+  // -----------------------------------------
+  // Operators
+  // -----------------------------------------
+
+  @Test
+  public void pageSkipsLazily() {
+    final StreamingResultsHolder<Integer> page = solutions(1_000_000).page(10_000, 50);
+    assertThat(page.list()).hasSize(50).startsWith(10_000).endsWith(10_049);
+    assertThat(pulled.get()).isEqualTo(10_050);
+  }
+
+  @Test
+  public void limitAndMap() {
+    assertThat(solutions(1_000_000).limit(3).map(i -> "s" + i).list()).containsExactly("s0", "s1", "s2");
+    assertThat(pulled.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void exactlyFailsFast() {
+    final StreamingResultsHolder<Integer> one = solutions(1_000_000).exactly(1);
+    try {
+      one.list();
+      fail("Should have thrown");
+    } catch (IllegalStateException e) {
+      assertThat(pulled.get()).isEqualTo(2);
+    }
+    assertThat(solutions(1).exactly(1).unique()).isEqualTo(0);
+  }
+
+  @Test
+  public void atMostAndAtLeast() {
+    assertThat(solutions(3).atMost(3).count()).isEqualTo(3);
+    assertThat(solutions(3).atLeast(3).count()).isEqualTo(3);
+    assertThatThrownBy(() -> solutions(4).atMost(3).count()).isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> solutions(2).atLeast(3).list()).isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> solutions(0).exactly(1).list()).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void distinct() {
+    final StreamingResultsHolder<Integer> holder = solutions(100_000).map(i -> i % 1_000).distinct();
+    assertThat(holder.count()).isEqualTo(1_000);
+    assertThat(holder.limit(3).list()).containsExactly(0, 1, 2);
+    assertThat(StreamingResultsHolder.of(() -> Arrays.asList("a", null, "b", null, "a").spliterator()).distinct().list()).containsExactly("a", null, "b");
+  }
+
+  @Test
+  public void parallelStream() {
+    assertThat(solutions(100_000).parallelStream().mapToLong(Integer::longValue).sum()).isEqualTo(99_999L * 100_000L / 2);
+    final ResultsHolder<Integer> listed = new ResultsHolder<>() {
+      @Override
+      public List<Integer> list() {
+        return IntStream.range(0, 1000).boxed().toList();
+      }
+
+      @Override
+      public Spliterator<Integer> spliterator() {
+        return list().spliterator();
+      }
+    };
+    assertThat(listed.spliterator().hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED)).isTrue();
+    assertThat(listed.parallelStream().isParallel()).isTrue();
+    assertThat(listed.parallelStream().mapToInt(Integer::intValue).sum()).isEqualTo(999 * 1000 / 2);
+  }
+
+  @Test
+  public void defaultStreamIsLazy() {
+    final ResultsHolder<Integer> lazy = new ResultsHolder<>() {
+      @Override
+      public List<Integer> list() {
+        throw new AssertionError("Must not be materialized");
+      }
+
+      @Override
+      public Iterator<Integer> iterator() {
+        return Stream.iterate(0, i -> i + 1).iterator();
+      }
+    };
+    assertThat(lazy.stream().skip(5).findFirst()).contains(5);
+  }
+
+}
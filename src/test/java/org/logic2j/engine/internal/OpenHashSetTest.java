@@ -0,0 +1,57 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.logic2j.engine.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Test;
+
+public class OpenHashSetTest {
+
+  @Test
+  public void addAndContains() {
+    final OpenHashSet<Object> set = new OpenHashSet<>(3);
+    assertThat(set.add(null)).isTrue();
+    assertThat(set.add(null)).isFalse();
+    assertThat(set.contains(null)).isTrue();
+    assertThat(set.add("a")).isTrue();
+    assertThat(set.add(new String("a"))).isFalse();
+    assertThat(set.contains("b")).isFalse();
+    assertThat(set.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void hashCodesDifferingInHighBits() {
+    final OpenHashSet<Integer> set = new OpenHashSet<>();
+    for (int i = 0; i < 60_000; i++) {
+      assertThat(set.add(i << 16)).isTrue();
+    }
+    for (int i = 0; i < 60_000; i++) {
+      assertThat(set.contains(i << 16)).isTrue();
+      assertThat(set.contains((i << 16) + 1)).isFalse();
+    }
+    assertThat(set.size()).isEqualTo(60_000);
+  }
+
+  @Test
+  public void capacityIsBounded() {
+    assertThatThrownBy(() -> new OpenHashSet<>(OpenHashSet.MAX_SIZE + 1)).isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(String.valueOf(OpenHashSet.MAX_SIZE));
+  }
+
+}
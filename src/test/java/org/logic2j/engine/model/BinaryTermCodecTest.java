@@ -0,0 +1,136 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.logic2j.engine.model.TermApiLocator.termApi;
+import static org.logic2j.engine.model.Var.anyVar;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.logic2j.engine.exception.InvalidTermException;
+
+public class BinaryTermCodecTest {
+
+  @Test
+  public void roundTrip() {
+    final Var<?> x = anyVar("X");
+    final Object term = termApi().normalize(new Struct<>("f", "a", 0, -1, Integer.MIN_VALUE, Long.MAX_VALUE, 2.5, Double.NaN, "\u00e9t\u00e9",
+        Struct.ATOM_TRUE, new Struct<>("g", x, Var.anon(), anyVar("Y"), x), Boolean.FALSE, Thread.State.BLOCKED));
+    final BinaryTermEncoder encoder = new BinaryTermEncoder().write(term).write("atom").write(42L);
+    final BinaryTermDecoder decoder = new BinaryTermDecoder(encoder.toByteBuffer());
+    final Struct<?> decoded = (Struct<?>) decoder.read();
+    assertThat(decoded).isEqualTo(term);
+    assertThat(decoded.toString()).isEqualTo(term.toString());
+    assertThat(decoded.getIndex()).isEqualTo(((Struct<?>) term).getIndex());
+    assertThat(decoded.getName()).isSameAs("f");
+    assertThat(decoded.getArg(7)).isSameAs(SymbolTable.symbol("\u00e9t\u00e9"));
+    final Struct<?> g = (Struct<?>) decoded.getArg(9);
+    assertThat(g.getArg(0)).isSameAs(g.getArg(3));
+    assertThat(g.getArg(1)).isSameAs(Var.anon());
+    assertThat(decoded.getArg(11)).isSameAs(Thread.State.BLOCKED);
+    assertThat(decoder.read()).isEqualTo("atom");
+    assertThat(decoder.read()).isEqualTo(42L);
+    assertThat(decoder.hasRemaining()).isFalse();
+  }
+
+  @Test
+  public void preservesSharingAndIsCompact() {
+    final Struct<?> shared = new Struct<>("address", "main street", 12, "springfield");
+    final Struct<?> term = new Struct<>("people", new Struct<>("p", "homer", shared), new Struct<>("p", "marge", shared));
+    // Smaller than the Prolog text of the same term, as shared sub-terms and symbols are written once
+    final int textSize = term.toString().getBytes(StandardCharsets.UTF_8).length;
+    assertThat(new BinaryTermEncoder().write(term).size()).isLessThan(textSize);
+    final BinaryTermEncoder encoder = new BinaryTermEncoder();
+    for (int i = 0; i < 100; i++) {
+      encoder.write(term);
+    }
+    // Direct buffer, decoded without an accessible array
+    final ByteBuffer direct = ByteBuffer.allocateDirect(encoder.size());
+    direct.put(encoder.toByteArray()).flip();
+    final BinaryTermDecoder decoder = new BinaryTermDecoder(direct);
+    final Struct<?> first = (Struct<?>) decoder.read();
+    assertThat(first).isEqualTo(term);
+    assertThat(((Struct<?>) first.getArg(0)).getArg(1)).isSameAs(((Struct<?>) first.getArg(1)).getArg(1));
+    assertThat(decoder.read()).isSameAs(first);
+  }
+
+  @Test
+  public void deepTerm() {
+    final int length = 100_000;
+    Object list = "[]";
+    for (int i = length - 1; i >= 0; i--) {
+      list = new Struct<>(".", i, list);
+    }
+    final Object decoded = new BinaryTermDecoder(new BinaryTermEncoder().write(list).toByteBuffer()).read();
+    assertThat(termApi().structurallyEquals(decoded, list)).isTrue();
+  }
+
+  @Test
+  public void malformedInput() {
+    final byte[] valid = new BinaryTermEncoder().write(new Struct<>("f", "a", anyVar("X"), Thread.State.NEW)).toByteArray();
+    for (int length = 1; length < valid.length; length++) {
+      final ByteBuffer truncated = ByteBuffer.wrap(valid, 0, length);
+      assertThatThrownBy(() -> new BinaryTermDecoder(truncated).read()).isInstanceOf(InvalidTermException.class);
+    }
+    // Undefined Var number
+    assertThatThrownBy(() -> decode(1, 8, 5)).isInstanceOf(InvalidTermException.class);
+    // Arity far beyond the input
+    assertThatThrownBy(() -> decode(1, 1, 0, 1, 'f', 0xFF, 0xFF, 0xFF, 0x7F, 2)).isInstanceOf(InvalidTermException.class);
+    // A class that is not an enum
+    final byte[] className = "java.lang.String".getBytes(StandardCharsets.UTF_8);
+    final ByteBuffer notEnum = ByteBuffer.allocate(className.length + 10);
+    notEnum.put(new byte[] {1, 12, 0, (byte) className.length}).put(className).put(new byte[] {1, 1, 'x'}).flip();
+    assertThatThrownBy(() -> new BinaryTermDecoder(notEnum).read()).isInstanceOf(InvalidTermException.class).hasMessageContaining("enum");
+  }
+
+  private static Object decode(int... bytes) {
+    final ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+    for (final int b : bytes) {
+      buffer.put((byte) b);
+    }
+    return new BinaryTermDecoder(buffer.flip()).read();
+  }
+
+  @Test
+  public void failedWriteIsRolledBack() {
+    final Var<?> x = anyVar("X");
+    final Struct<?> shared = new Struct<>("g", "b", x);
+    final BinaryTermEncoder encoder = new BinaryTermEncoder().write(new Struct<>("f", "a"));
+    final int size = encoder.size();
+    final Struct<?> invalid = new Struct<>("h", shared, new Struct<>("k", "c", 1.5f));
+    assertThatThrownBy(() -> encoder.write(invalid)).isInstanceOf(InvalidTermException.class);
+    assertThat(encoder.size()).isEqualTo(size);
+    final Struct<?> next = new Struct<>("p", shared, shared, "c", x);
+    encoder.write(next);
+    final BinaryTermDecoder decoder = new BinaryTermDecoder(encoder.toByteBuffer());
+    assertThat(decoder.read()).isEqualTo(new Struct<>("f", "a"));
+    final Struct<?> decoded = (Struct<?>) decoder.read();
+    assertThat(decoded.toString()).isEqualTo(next.toString());
+    assertThat(decoded.getArg(1)).isSameAs(decoded.getArg(0));
+    assertThat(decoder.hasRemaining()).isFalse();
+  }
+
+  @Test(expected = InvalidTermException.class)
+  public void unsupportedObject() {
+    new BinaryTermEncoder().write(new Struct<>("f", new Object()));
+  }
+
+}
@@ -19,12 +19,25 @@ package org.logic2j.engine.model;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.logic2j.engine.model.SimpleBindings.bind;
+import static org.logic2j.engine.model.SimpleBindings.bindDoubles;
+import static org.logic2j.engine.model.SimpleBindings.bindIndexed;
+import static org.logic2j.engine.model.SimpleBindings.bindInts;
+import static org.logic2j.engine.model.SimpleBindings.bindLongs;
+import static org.logic2j.engine.model.SimpleBindings.bindOnce;
 import static org.logic2j.engine.model.SimpleBindings.empty;
+import static org.logic2j.engine.model.SimpleBindings.newBinding;
 
 public class ConstantTest {
 
@@ -52,7 +65,7 @@ public class ConstantTest {
   @Test
   public void setStream1() {
     final Constant<Long> binding = bind(LongStream.range(1, 1000).boxed());
-    assertThat(binding.isUniqueFeed()).isTrue();
+    assertThat(binding.isUniqueFeed()).isFalse();
     assertThat(binding.size()).isEqualTo(999L);
     // Can get several times as an array
     assertThat(binding.toArray().length).isEqualTo(999);
@@ -62,22 +75,147 @@ public class ConstantTest {
   @Test
   public void setIterator1() {
     final Constant<Long> binding = bind(LongStream.range(1, 1000).boxed().toList().iterator());
-    assertThat(binding.isUniqueFeed()).isTrue();
+    assertThat(binding.isUniqueFeed()).isFalse();
     assertThat(binding.size()).isEqualTo(999L);
   }
 
   @Test
   public void infiniteStream1() {
     final Constant<Integer> binding = bind(new Random().ints().limit(20000).boxed());
-    assertThat(binding.isUniqueFeed()).isTrue();
+    assertThat(binding.isUniqueFeed()).isFalse();
     assertThat(binding.size()).isEqualTo(20000L);
   }
 
-  @Test(expected = IllegalStateException.class)
-  public void consumeStream() {
+  @Test
+  public void replayStream() {
     final Constant<Integer> binding = bind(new Random().ints().limit(10).boxed());
     assertThat(binding.toStream().count()).isEqualTo(10L);
     assertThat(binding.toStream().count()).isEqualTo(10L);
+    assertThat(binding.size()).isEqualTo(10L);
+    assertThat(binding.toStream().toList()).containsExactly(binding.toArray());
+  }
+
+  @Test
+  public void sizeThenStream() {
+    final Constant<Long> binding = bind(LongStream.range(0, 5000).boxed().iterator());
+    assertThat(binding.size()).isEqualTo(5000L);
+    assertThat(binding.toStream().mapToLong(Long::longValue).sum()).isEqualTo(4999L * 5000L / 2);
+    assertThat(binding.contains(4999L)).isTrue();
+  }
+
+  @Test
+  public void streamPullsOnlyWhatIsConsumed() {
+    final AtomicInteger pulled = new AtomicInteger();
+    final Constant<Integer> binding = bind(IntStream.range(0, 1000).boxed().peek(i -> pulled.incrementAndGet()));
+    assertThat(binding.toStream().limit(3).toList()).containsExactly(0, 1, 2);
+    assertThat(pulled.get()).isEqualTo(3);
+    assertThat(binding.toStream().limit(2).toList()).containsExactly(0, 1);
+    assertThat(pulled.get()).isEqualTo(3);
+    assertThat(binding.getType()).isEqualTo(Integer.class);
+    assertThat(binding.size()).isEqualTo(1000L);
+    assertThat(pulled.get()).isEqualTo(1000);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void scalarFromManyStreamed() {
+    bind(Stream.of(1, 2)).toScalar();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void consumeUniqueFeed() {
+    final Constant<Integer> binding = bindOnce(new Random().ints().limit(10).boxed(), Integer.class);
+    assertThat(binding.isUniqueFeed()).isTrue();
+    assertThat(binding.toStream().count()).isEqualTo(10L);
+    binding.size();
+  }
+
+  @Test
+  public void primitiveInts() {
+    final IntConstant binding = bindInts(5, 3, 9, 1);
+    assertThat(binding.getType()).isEqualTo(Integer.class);
+    assertThat(binding.size()).isEqualTo(4L);
+    assertThat(binding.containsInt(9)).isTrue();
+    assertThat(binding.containsInt(4)).isFalse();
+    assertThat(binding.contains(3)).isTrue();
+    assertThat(binding.contains(null)).isFalse();
+    assertThat(binding.toArray()).containsExactly(5, 3, 9, 1);
+    assertThat(binding.toIntStream().sum()).isEqualTo(18);
+    assertThat(binding.toString()).isEqualTo("Integers<5,3,9,1>");
+  }
+
+  @Test
+  public void primitiveLongs() {
+    final LongConstant binding = bindLongs(LongStream.range(0, 1_000_000).map(i -> i * 2));
+    assertThat(binding.size()).isEqualTo(1_000_000L);
+    assertThat(binding.containsLong(1_999_998L)).isTrue();
+    assertThat(binding.containsLong(3L)).isFalse();
+    assertThat(binding.toLongArray()).hasSize(1_000_000);
+    assertThat(bindLongs(42L).toScalar()).isEqualTo(42L);
+  }
+
+  @Test
+  public void primitiveDoubles() {
+    final DoubleConstant binding = bindDoubles(2.5, Double.NaN, -1.0);
+    assertThat(binding.containsDouble(-1.0)).isTrue();
+    assertThat(binding.contains(Double.NaN)).isTrue();
+    assertThat(binding.containsDouble(0.0)).isFalse();
+    assertThat(newBinding(new double[]{1.0})).isInstanceOf(DoubleConstant.class);
+  }
+
+  @Test
+  public void containsOnLargeArray() {
+    final String[] values = IntStream.range(0, 500_000).mapToObj(i -> "v" + i).toArray(String[]::new);
+    final Constant<String> binding = bind(values);
+    for (int i = 0; i < 500_000; i += 1000) {
+      assertThat(binding.contains("v" + i)).isTrue();
+    }
+    assertThat(binding.contains("w1")).isFalse();
+    assertThat(binding.contains(null)).isFalse();
+  }
+
+  @Test
+  public void containsOnLargeStream() {
+    final Constant<Long> binding = bind(LongStream.range(0, 100_000).boxed());
+    assertThat(binding.contains(99_999L)).isTrue();
+    assertThat(binding.contains(100_000L)).isFalse();
+  }
+
+  @Test
+  public void membershipIndex() {
+    final MembershipIndex small = new MembershipIndex(new Integer[]{3, 1, 3});
+    assertThat(small.contains(3)).isTrue();
+    assertThat(small.contains(2)).isFalse();
+    assertThat(small.isBuilt()).isFalse();
+    assertThat(small.build().isBuilt()).isTrue();
+    assertThat(small.contains(1)).isTrue();
+    assertThat(small.contains(2)).isFalse();
+    final MembershipIndex large = new MembershipIndex(IntStream.range(0, MembershipIndex.THRESHOLD).boxed().toArray(Integer[]::new));
+    assertThat(large.contains(0)).isTrue();
+    assertThat(large.isBuilt()).isTrue();
+  }
+
+  @Test
+  public void indexedCollection() {
+    final List<String> list = new ArrayList<>(List.of("a", "b"));
+    final Constant<String> binding = bindIndexed(list);
+    list.add("c");
+    assertThat(binding.contains("b")).isTrue();
+    assertThat(binding.contains("c")).isFalse();
+    assertThat(binding.size()).isEqualTo(2L);
+    assertThat(bindIndexed("x", "y").contains("y")).isTrue();
+  }
+
+  @Test
+  public void parallelStreams() {
+    final Integer[] values = IntStream.range(0, 100_000).boxed().toArray(Integer[]::new);
+    assertThat(bind(values).toStream().spliterator().hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED)).isTrue();
+    assertThat(bind(values).parallelStream().mapToLong(Integer::longValue).sum()).isEqualTo(99_999L * 100_000L / 2);
+    final Constant<Integer> streamed = bind(Arrays.stream(values));
+    assertThat(streamed.size()).isEqualTo(100_000L);
+    assertThat(streamed.toStream().spliterator().hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED)).isTrue();
+    assertThat(streamed.parallelStream().mapToLong(Integer::longValue).sum()).isEqualTo(99_999L * 100_000L / 2);
+    assertThat(streamed.parallelStream().toList()).containsExactly(values);
+    assertThat(bindInts(1, 2, 3).parallelStream().isParallel()).isTrue();
   }
 
 }
@@ -0,0 +1,99 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.logic2j.engine.model.TermApiLocator.termApi;
+import static org.logic2j.engine.model.Var.anyVar;
+
+import org.junit.Test;
+import org.logic2j.engine.exception.InvalidTermException;
+import org.logic2j.engine.unify.VarBindings;
+
+public class FlatTermStoreTest {
+
+  @Test
+  public void roundTrip() {
+    final Var<?> x = anyVar("X");
+    final Struct<?> term = (Struct<?>) termApi().normalize(new Struct<>("f", "a", 12, -7, Long.MAX_VALUE, 3L, 2.5, -0.0, Struct.ATOM_TRUE,
+        new Struct<>("g", x, Var.anon(), anyVar("Y"), x), Thread.State.NEW));
+    final FlatTermStore store = new FlatTermStore();
+    final long address = store.add(term);
+    final Struct<?> back = store.toStruct(address);
+    assertThat(back).isEqualTo(term);
+    assertThat(back.toString()).isEqualTo(term.toString());
+    assertThat(back.getIndex()).isEqualTo(term.getIndex()).isEqualTo(2);
+    assertThat(VarBindings.varCount(back)).isEqualTo(2); // Normalized, as the term added
+    final Struct<?> g = (Struct<?>) back.getArg(8);
+    assertThat(g.getIndex()).isEqualTo(((Struct<?>) term.getArg(8)).getIndex());
+    assertThat(g.getArg(0)).isSameAs(g.getArg(3));
+    assertThat(((Var<?>) g.getArg(0)).getIndex()).isEqualTo(0);
+    assertThat(g.getArg(1)).isSameAs(Var.anon());
+    assertThat(back.getArg(3)).isEqualTo(Long.MAX_VALUE);
+    assertThat(back.getArg(4)).isEqualTo(3L);
+    assertThat(back.getArg(6)).isEqualTo(-0.0);
+    assertThat(back.getArg(9)).isSameAs(Thread.State.NEW);
+  }
+
+  @Test
+  public void view() {
+    final FlatTermStore store = new FlatTermStore();
+    final long address = store.add(new Struct<>("person", "alice", 42, new Struct<>("city", "paris")));
+    final FlatStruct view = store.view(address);
+    assertThat(view.getSignature()).isSameAs(FunctorSignature.of("person", 3));
+    assertThat(view.getName()).isEqualTo("person");
+    assertThat(view.getArg(0)).isEqualTo("alice");
+    assertThat(view.getArg(1)).isEqualTo(42);
+    assertThat(view.isStructArg(2)).isTrue();
+    final FlatStruct city = (FlatStruct) view.getArg(2);
+    assertThat(city.getArg(0)).isEqualTo("paris");
+    assertThat(city).isEqualTo(store.view(city.getAddress()));
+    assertThat(view.toString()).isEqualTo("person(alice, 42, city(paris))");
+  }
+
+  @Test
+  public void manyFactsOverSeveralPages() {
+    final FlatTermStore store = new FlatTermStore(64);
+    final long[] addresses = new long[10_000];
+    for (int i = 0; i < addresses.length; i++) {
+      addresses[i] = store.add(new Struct<>("fact", i, "atom" + (i % 10), new Struct<>("pair", i, (double) i)));
+    }
+    assertThat(store.getAllocatedBytes()).isGreaterThan(store.getNbCells());
+    for (int i = 0; i < addresses.length; i++) {
+      assertThat(store.view(addresses[i]).getArg(0)).isEqualTo(i);
+    }
+    assertThat(store.toStruct(addresses[9_999])).isEqualTo(new Struct<>("fact", 9_999, "atom9", new Struct<>("pair", 9_999, 9_999.0)));
+  }
+
+  @Test
+  public void deepTerm() {
+    final int length = 100_000;
+    Object list = "[]";
+    for (int i = length - 1; i >= 0; i--) {
+      list = new Struct<>(".", i, list);
+    }
+    final FlatTermStore store = new FlatTermStore();
+    assertThat(termApi().structurallyEquals(store.toStruct(store.add((Struct<?>) list)), list)).isTrue();
+  }
+
+  @Test(expected = InvalidTermException.class)
+  public void arityLargerThanPage() {
+    new FlatTermStore(4).add(new Struct<>("f", 1, 2, 3, 4));
+  }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import org.junit.Test;
+
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.logic2j.engine.model.SimpleBindings.bindSpilling;
+
+public class SpillingConstantTest {
+
+  @Test
+  public void inMemoryOnly() {
+    try (SpillingConstant<String> binding = bindSpilling(Stream.of("a", "b", "c"), SpillingConstant.Codec.strings())) {
+      assertThat(binding.isSpilled()).isFalse();
+      assertThat(binding.size()).isEqualTo(3L);
+      assertThat(binding.contains("b")).isTrue();
+      assertThat(binding.toArray()).containsExactly("a", "b", "c");
+      assertThat(binding.getType()).isEqualTo(String.class);
+    }
+  }
+
+  @Test
+  public void spillAndReplay() {
+    final AtomicBoolean closed = new AtomicBoolean();
+    final Stream<Long> source = LongStream.range(0, 200_000).boxed().onClose(() -> closed.set(true));
+    try (SpillingConstant<Long> binding = bindSpilling(source, SpillingConstant.Codec.longs(), 1000)) {
+      assertThat(binding.size()).isEqualTo(200_000L);
+      assertThat(closed).isTrue();
+      assertThat(binding.isSpilled()).isTrue();
+      assertThat(binding.isUniqueFeed()).isFalse();
+      // Can be traversed several times
+      assertThat(binding.toStream().mapToLong(Long::longValue).sum()).isEqualTo(199_999L * 200_000L / 2);
+      assertThat(binding.toStream().skip(150_000).findFirst()).contains(150_000L);
+      assertThat(binding.contains(199_999L)).isTrue();
+      assertThat(binding.contains(-1L)).isFalse();
+      assertThat(binding.parallelStream().mapToLong(Long::longValue).sum()).isEqualTo(199_999L * 200_000L / 2);
+      assertThat(binding.toStream().spliterator().hasCharacteristics(Spliterator.SIZED)).isTrue();
+    }
+  }
+
+  @Test
+  public void closeUnconsumedClosesSource() {
+    final AtomicBoolean closed = new AtomicBoolean();
+    final Stream<Long> source = LongStream.range(0, 10).boxed().onClose(() -> closed.set(true));
+    bindSpilling(source, SpillingConstant.Codec.longs(), 5).close();
+    assertThat(closed).isTrue();
+  }
+
+  @Test
+  public void serializableCodec() {
+    try (SpillingConstant<String> binding = bindSpilling(IntStream.range(0, 50).mapToObj(i -> "s" + i).iterator(),
+        SpillingConstant.Codec.serializable(String.class), 10)) {
+      assertThat(binding.toList()).hasSize(50).endsWith("s49");
+    }
+  }
+
+  @Test
+  public void emptyStream() {
+    final SpillingConstant<Integer> binding = bindSpilling(Stream.empty(), SpillingConstant.Codec.integers());
+    assertThat(binding.size()).isEqualTo(0L);
+    assertThat(binding.getType()).isEqualTo(Integer.class);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void closed() {
+    final SpillingConstant<Integer> binding = bindSpilling(Stream.of(1, 2), SpillingConstant.Codec.integers(), 1);
+    assertThat(binding.size()).isEqualTo(2L);
+    binding.close();
+    binding.toStream();
+  }
+
+  @Test
+  public void failingSourceIsNeverPartiallyExposed() {
+    final AtomicBoolean closed = new AtomicBoolean();
+    final Stream<String> source = Stream.of("a", null, "b", "c").onClose(() -> closed.set(true));
+    final SpillingConstant<String> binding = bindSpilling(source, SpillingConstant.Codec.strings(), 1);
+    assertThatThrownBy(binding::size).isInstanceOf(IllegalArgumentException.class);
+    assertThat(closed).isTrue();
+    assertThatThrownBy(binding::size).isInstanceOf(IllegalStateException.class).hasCauseInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(binding::toStream).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void scalarWithoutMemoryWindow() {
+    try (SpillingConstant<Integer> binding = bindSpilling(Stream.of(42), SpillingConstant.Codec.integers(), 0)) {
+      assertThat(binding.isSpilled()).isTrue();
+      assertThat(binding.toScalar()).isEqualTo(42);
+    }
+  }
+
+}
@@ -18,8 +18,15 @@
 package org.logic2j.engine.model;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.logic2j.engine.model.TermApiLocator.termApi;
+import static org.logic2j.engine.model.Var.anyVar;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import org.junit.Test;
+import org.logic2j.engine.exception.InvalidTermException;
 
 public class StructTest {
 
@@ -67,4 +74,210 @@ public class StructTest {
   }
 
 
-}
\ No newline at end of file
+  @Test
+  public void internedGround() {
+    final Struct<?> a1 = Struct.interned("edge", "a", Struct.interned("b", 1));
+    final Struct<?> a2 = Struct.interned("edge", "a", new Struct<>("b", 1));
+    assertThat(a2).isSameAs(a1);
+    assertThat(a2.getArg(1)).isSameAs(a1.getArg(1));
+    assertThat(Struct.interned("edge", "a", "c")).isNotEqualTo(a1);
+    assertThat(TermApiLocator.termApi().intern(new Struct<>("edge", "a", new Struct<>("b", 1)))).isSameAs(a1);
+  }
+
+  @Test
+  public void internedLongList() {
+    final Object list = TermApiLocator.termApi().intern(longList(200_000));
+    assertThat(((Struct<?>) list).isInterned()).isTrue();
+    assertThat(TermApiLocator.termApi().intern(longList(200_000))).isSameAs(list);
+  }
+
+  private static Object longList(int length) {
+    Object list = "[]";
+    for (int i = length - 1; i >= 0; i--) {
+      list = new Struct<>(".", i, list);
+    }
+    return list;
+  }
+
+  @Test
+  public void internedNonGroundIsNotShared() {
+    final Struct<?> a1 = Struct.interned("edge", "a", "X");
+    final Struct<?> a2 = Struct.interned("edge", "a", "X");
+    assertThat(a2).isNotSameAs(a1);
+    assertThat(a2.toString()).isEqualTo(a1.toString());
+  }
+
+  @Test
+  public void hashCodeIsStable() {
+    final Var<?> x = Var.anyVar("X");
+    final Struct<?> s = new Struct<>("f", "a", x);
+    final int hash = s.hashCode();
+    TermApiLocator.termApi().assignIndexes(s, 0);
+    assertThat(s.hashCode()).isEqualTo(hash);
+    final Struct<?> clone = s.cloneWithNewArguments(new Object[]{"b", x});
+    assertThat(clone.hashCode()).isEqualTo(new Struct<>("f", "b", x).hashCode());
+    assertThat(clone.hashCode()).isNotEqualTo(hash);
+  }
+
+  @Test
+  public void signatureIsCanonical() {
+    final Struct<?> s1 = new Struct<>("f", "a", "b");
+    final Struct<?> s2 = new Struct<>(new StringBuilder("f").toString(), "c", "d");
+    assertThat(s2.getSignature()).isSameAs(s1.getSignature());
+    assertThat(s1.getPredicateSignature()).isSameAs("f/2");
+    assertThat(new Struct<>("f", "a").getSignature().getId()).isNotEqualTo(s1.getSignature().getId());
+    assertThat(s1.cloneWithNewArguments(new Object[]{"x"}).getPredicateSignature()).isEqualTo("f/1");
+    // Large arities
+    final FunctorSignature large = FunctorSignature.of("big", 50_000);
+    assertThat(FunctorSignature.of("big", 50_000)).isSameAs(large);
+    assertThat(large.toString()).isEqualTo("big/50000");
+  }
+
+  @Test
+  public void freeze() {
+    final Struct<?> term = (Struct<?>) termApi().normalize(new Struct<>("f", anyVar("X"), new Struct<>("g", anyVar("Y"), "a"), Var.anon()));
+    assertThat(termApi().freeze(term)).isSameAs(term);
+    final Struct<?> g = (Struct<?>) term.getArg(1);
+    final Var<?> x = (Var<?>) term.getArg(0);
+    assertThat(term.isFrozen()).isTrue();
+    assertThat(g.isFrozen()).isTrue();
+    assertThat(x.isFrozen()).isTrue();
+    assertThat(Var.anon().isFrozen()).isFalse();
+    assertThatThrownBy(() -> x.setIndex(5)).isInstanceOf(InvalidTermException.class);
+    assertThatThrownBy(() -> term.setContent(null)).isInstanceOf(InvalidTermException.class);
+    term.getArgs()[0] = "changed";
+    assertThat(term.getArg(0)).isSameAs(x);
+    assertThat(term.toString()).isSameAs(term.toString());
+    // Normalizing again is a no-op
+    assertThat(termApi().normalize(term)).isSameAs(term);
+    assertThat(termApi().collectTerms(term)).isNotEmpty();
+    assertThat(x.getIndex()).isEqualTo(0);
+  }
+
+  @Test
+  public void normalizeFrozenVar() {
+    final Var<?> x = termApi().freeze((Var<?>) termApi().normalize(anyVar("X")));
+    assertThat(x.isFrozen()).isTrue();
+    assertThat(termApi().normalize(x)).isSameAs(x);
+    assertThat(x.getIndex()).isEqualTo(0);
+    // Within another term it is replaced, so that it can be indexed there
+    final Struct<?> term = (Struct<?>) termApi().normalize(new Struct<>("f", anyVar("Y"), x));
+    assertThat(term.getArg(1)).isNotSameAs(x);
+    assertThat(((Var<?>) term.getArg(1)).getIndex()).isEqualTo(1);
+    assertThat(x.getIndex()).isEqualTo(0);
+  }
+
+  @Test
+  public void freezeRequiresNormalized() {
+    assertThatThrownBy(() -> termApi().freeze(new Struct<>("f", anyVar("X")))).isInstanceOf(InvalidTermException.class);
+  }
+
+  @Test
+  public void embedFrozen() {
+    final Struct<?> template = termApi().freeze((Struct<?>) termApi().normalize(new Struct<>("g", anyVar("A"), anyVar("B"))));
+    final Struct<?> ground = termApi().freeze((Struct<?>) termApi().normalize(new Struct<>("h", "c")));
+    final Struct<?> goal = (Struct<?>) termApi().normalize(new Struct<>("f", anyVar("Z"), template, ground, anyVar("B")));
+    assertThat(goal.getIndex()).isEqualTo(3); // Z, A and B
+    // The template was rebuilt with new variables, the frozen ground term is shared as is
+    final Struct<?> g = (Struct<?>) goal.getArg(1);
+    assertThat(g).isNotSameAs(template);
+    assertThat(g.isFrozen()).isFalse();
+    assertThat(((Var<?>) g.getArg(0)).getIndex()).isEqualTo(1);
+    assertThat(g.getArg(1)).isSameAs(goal.getArg(3));
+    assertThat(goal.getArg(2)).isSameAs(ground);
+    // Untouched
+    assertThat(((Var<?>) template.getArg(0)).getIndex()).isEqualTo(0);
+    assertThat(((Var<?>) template.getArg(1)).getIndex()).isEqualTo(1);
+    assertThat(template.getIndex()).isEqualTo(2);
+  }
+
+  @Test
+  public void normalizeEmbeddedFrozenConcurrently() throws InterruptedException {
+    final Struct<?> template = termApi().freeze((Struct<?>) termApi().normalize(
+        new Struct<>("g", anyVar("A"), new Struct<>("h", anyVar("B"), anyVar("A")))));
+    final String formatted = template.toString();
+    final List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+    final List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      final Thread thread = new Thread(() -> {
+        try {
+          for (int i = 0; i < 2_000; i++) {
+            final Struct<?> goal = (Struct<?>) termApi().normalize(new Struct<>("f", anyVar("X"), template));
+            assertThat(goal.getIndex()).isEqualTo(3);
+          }
+        } catch (Throwable e) {
+          errors.add(e);
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    assertThat(errors).isEmpty();
+    assertThat(template.getIndex()).isEqualTo(2);
+    assertThat(template.toString()).isEqualTo(formatted);
+  }
+
+  @Test
+  public void shape() {
+    final Struct<?> g = new Struct<>("g", "a", 1);
+    final Struct<?> term = new Struct<>("f", anyVar("X"), g, new Struct<>("h", new Struct<>("i", anyVar("Y"), anyVar("X"))), Struct.ATOM_TRUE);
+    assertThat(term.isGround()).isFalse();
+    assertThat(g.isGround()).isTrue();
+    assertThat(Struct.ATOM_TRUE.isGround()).isTrue();
+    assertThat(new Struct<>("f", Var.anon()).isGround()).isFalse();
+    assertThat(term.nodeCount()).isEqualTo(10);
+    assertThat(g.nodeCount()).isEqualTo(3);
+    assertThat(term.depth()).isEqualTo(3);
+    assertThat(g.depth()).isEqualTo(1);
+    assertThat(Struct.ATOM_TRUE.depth()).isEqualTo(0);
+    assertThat(term.distinctVarCount()).isEqualTo(3); // The two X are distinct instances
+    assertThat(((Struct<?>) termApi().normalize(term)).distinctVarCount()).isEqualTo(2);
+    assertThat(g.distinctVarCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void shapeOfLongList() {
+    final int length = 100_000;
+    Object list = "[]";
+    for (int i = length - 1; i >= 0; i--) {
+      list = new Struct<>(".", i == 500 ? anyVar("X") : i, list);
+    }
+    final Struct<?> struct = (Struct<?>) list;
+    assertThat(struct.nodeCount()).isEqualTo(2 * length + 1);
+    assertThat(struct.depth()).isEqualTo(length);
+    assertThat(struct.isGround()).isFalse();
+    assertThat(struct.distinctVarCount()).isEqualTo(1);
+    assertThat(termApi().findVar(struct, "X")).isNotNull();
+  }
+
+  @Test
+  public void copyClonesAllStructs() {
+    final Struct<?> g = new Struct<>("g", "a");
+    final Struct<?> h = new Struct<>("h", anyVar("X"));
+    final Struct<?> original = new Struct<>("f", g, h);
+    final Struct<?> copy = new Struct<>(original);
+    assertThat(copy).isEqualTo(original);
+    assertThat(copy.getArg(0)).isNotSameAs(g);
+    assertThat(copy.getArg(1)).isNotSameAs(h);
+  }
+
+  @Test
+  public void normalizeSharesSubStructsOfNormalizedGroundStructs() {
+    final Struct<?> p = (Struct<?>) termApi().normalize(new Struct<>("p", new Struct<>("g", "a")));
+    final Struct<?> term = (Struct<?>) termApi().normalize(new Struct<>("q", p, new Struct<>("g", "a")));
+    assertThat(term.getArg(1)).isSameAs(((Struct<?>) term.getArg(0)).getArg(0));
+  }
+
+  @Test
+  public void normalizeGroundSubStructAlone() {
+    final Struct<?> term = (Struct<?>) termApi().normalize(new Struct<>("f", anyVar("X"), new Struct<>("g", "a")));
+    final Struct<?> g = (Struct<?>) term.getArg(1);
+    assertThat(g.getIndex()).isEqualTo(1);
+    final Struct<?> normalized = (Struct<?>) termApi().normalize(g);
+    assertThat(normalized.getIndex()).isEqualTo(0);
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class SymbolTableTest {
+
+  @Test
+  public void strong() {
+    checkTable(new SymbolTable(SymbolTable.Retention.STRONG));
+  }
+
+  @Test
+  public void weak() {
+    checkTable(new SymbolTable(SymbolTable.Retention.WEAK));
+  }
+
+  private void checkTable(SymbolTable table) {
+    final String symbol = table.intern(new StringBuilder("sym").append("bol"));
+    assertThat(symbol).isEqualTo("symbol");
+    // Same reference as compile-time constants
+    assertThat(symbol).isSameAs("symbol");
+    assertThat(table.intern(",")).isSameAs(Struct.FUNCTOR_COMMA);
+    // Dense ids
+    assertThat(table.idOf(symbol)).isEqualTo(0);
+    assertThat(table.idOf(Struct.FUNCTOR_COMMA)).isEqualTo(1);
+    assertThat(table.idOf(new String("symbol"))).isEqualTo(-1);
+    assertThat(table.idOf("unknown")).isEqualTo(-1);
+    assertThat(table.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void concurrentRegistration() {
+    final SymbolTable table = new SymbolTable(SymbolTable.Retention.WEAK);
+    // Hold the interned symbols, otherwise the WEAK table may legitimately drop and re-create them
+    final Map<Integer, String> retained = new ConcurrentHashMap<>();
+    final AtomicInteger mismatches = new AtomicInteger();
+    IntStream.range(0, 10_000).parallel().forEach(i -> {
+      final String symbol = table.intern("s" + (i % 100));
+      final String first = retained.putIfAbsent(i % 100, symbol);
+      if (first != null && first != symbol) {
+        mismatches.incrementAndGet();
+      }
+    });
+    assertThat(mismatches.get()).isEqualTo(0);
+    assertThat(retained).hasSize(100);
+    assertThat(table.size()).isEqualTo(100);
+  }
+
+  @Test
+  public void termsUseSymbols() {
+    final String name = new StringBuilder("f").append("oo").toString();
+    assertThat(new Struct<>(name, 1).getName()).isSameAs("foo");
+    assertThat(Var.anyVar(new StringBuilder("X")).getName()).isSameAs("X");
+    assertThat(TermApiLocator.termApi().valueOf(new StringBuilder("abc"))).isSameAs("abc");
+  }
+
+}
@@ -22,6 +22,11 @@ import static org.logic2j.engine.model.TermApiLocator.termApi;
 import static org.logic2j.engine.model.Var.anon;
 import static org.logic2j.engine.model.Var.anyVar;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
 import org.junit.Test;
 import org.logic2j.engine.exception.InvalidTermException;
 
@@ -49,6 +54,62 @@ public class TermApiTest {
     assertThat(termApi().structurallyEquals(s2.getArg(0), s2.getArg(1))).isTrue();
   }
 
+  @Test
+  public void structurallyEqualsNestedOnFirstArgument() {
+    // Each level has two compound arguments, so comparison cannot simply loop on the rightmost one
+    final int depth = 100_000;
+    Object t1 = "z";
+    Object t2 = "z";
+    for (int i = 0; i < depth; i++) {
+      t1 = new Struct<>("s", t1, new Struct<>("g", i));
+      t2 = new Struct<>("s", t2, new Struct<>("g", i == 10 ? -1 : i));
+    }
+    final Object copy = termApi().depthFirstStructTransform(t1, struct -> new Struct<>(struct.getName(), struct.getArgs()));
+    assertThat(copy).isNotSameAs(t1);
+    assertThat(termApi().structurallyEquals(t1, copy)).isTrue();
+    assertThat(termApi().structurallyEquals(t1, t2)).isFalse();
+  }
+
+  @Test
+  public void factorizeSharesEqualStructs() {
+    final Struct<?> s = new Struct<>("f", new Struct<>("g", "a"), new Struct<>("g", "a"), anyVar("X"), new Struct<>("h", anyVar("X")));
+    final Struct<?> factorized = termApi().factorize(s);
+    assertThat(factorized.toString()).isEqualTo(s.toString());
+    assertThat(factorized.getArg(1)).isSameAs(factorized.getArg(0));
+    assertThat(((Struct<?>) factorized.getArg(3)).getArg(0)).isSameAs(factorized.getArg(2));
+  }
+
+  @Test
+  public void factorizeLargeTerm() {
+    // 50k leaves under one functor, only 100 distinct values
+    final Object[] args = new Object[50_000];
+    for (int i = 0; i < args.length; i++) {
+      args[i] = new Struct<>("p", i % 100, anyVar("X" + (i % 100)));
+    }
+    final Struct<?> factorized = termApi().factorize(new Struct<>("big", args));
+    assertThat(factorized.getArg(49_999)).isSameAs(factorized.getArg(99));
+    assertThat(factorized.getArg(0)).isNotSameAs(factorized.getArg(1));
+    assertThat(termApi().assignIndexes(factorized, 0)).isEqualTo(100);
+  }
+
+  @Test
+  public void deepListDoesNotOverflowStack() {
+    final int length = 200_000;
+    Object list = "[]";
+    for (int i = length - 1; i >= 0; i--) {
+      list = new Struct<>(".", i % 2 == 0 ? anyVar("X") : i, list);
+    }
+    final Object normalized = termApi().normalize(list);
+    assertThat(((Struct<?>) normalized).getIndex()).isEqualTo(1);
+    assertThat(termApi().findVar(normalized, "X")).isNotNull();
+    assertThat(termApi().collectTerms(normalized).size()).isEqualTo(2 * length);
+    assertThat(termApi().structurallyEquals(normalized, termApi().factorize(normalized))).isTrue();
+    final Object transformed = termApi().depthFirstStructTransform(normalized, s -> s);
+    assertThat(transformed).isSameAs(normalized);
+    final String formatted = normalized.toString();
+    assertThat(formatted).startsWith("'.'(X, '.'(1, '.'(X, ").endsWith("'.'(199999, [])" + ")".repeat(length - 1));
+  }
+
   @Test
   public void collectTerms() {
     Term term;
@@ -88,6 +149,47 @@ public class TermApiTest {
   }
 
 
+  @Test
+  public void distinctVars() {
+    final Var<?> x = anyVar("X");
+    final Var<?> y = anyVar("Y");
+    final Struct<?> term = new Struct<>("f", x, anon(), new Struct<>("g", y, x), "a", y);
+    assertThat(termApi().distinctVars(term)).containsExactly(x, y);
+    // Same when normalized, deduplicated by index
+    final Object normalized = termApi().normalize(term);
+    assertThat(termApi().distinctVars(normalized)).hasSize(2);
+    assertThat(termApi().distinctVars(x)).containsExactly(x);
+    assertThat(termApi().distinctVars("a")).isEmpty();
+  }
+
+  @Test
+  public void distinctVarsNormalizedSeparately() {
+    final Object p = termApi().normalize(new Struct<>("p", anyVar("X")));
+    final Object q = termApi().normalize(new Struct<>("q", anyVar("Y"), anyVar("Y")));
+    final Var<?>[] vars = termApi().distinctVars(new Struct<>(",", p, q, p));
+    assertThat(vars).hasSize(2);
+    assertThat(vars[0].getName()).isEqualTo("X");
+    assertThat(vars[1].getName()).isEqualTo("Y");
+  }
+
+  @Test
+  public void distinctVarsManyVars() {
+    final Object[] args = new Object[5_000];
+    for (int i = 0; i < args.length; i++) {
+      args[i] = anyVar("X" + (i % 2_000));
+    }
+    final Object normalized = termApi().normalize(new Struct<>("goal", args));
+    final Var<?>[] vars = termApi().distinctVars(normalized);
+    assertThat(vars).hasSize(2_000);
+    assertThat(vars[1_999].getName()).isEqualTo("X1999");
+    // Reuse a recipient
+    final List<Var<?>> recipient = new ArrayList<>();
+    assertThat(termApi().distinctVarsInto(normalized, recipient)).isEqualTo(2_000);
+    recipient.clear();
+    assertThat(termApi().distinctVarsInto(normalized, recipient)).isEqualTo(2_000);
+    assertThat(recipient).containsExactly(vars);
+  }
+
   @Test(expected = InvalidTermException.class)
   public void functorFromSignatureFails() {
     termApi().functorFromSignature("toto4");
@@ -159,4 +261,21 @@ public class TermApiTest {
   public void complicated() {
     assertThat(TERM_API.quoteIfNeeded("\t\n\na\rb\t ").toString()).isEqualTo("'\t\\n\\na\\rb\t '");
   }
+
+  @Test
+  public void needsQuoteSameAsRegex() {
+    final Pattern atomPattern = Pattern.compile("(!|[a-z][a-zA-Z_0-9]*)");
+    final String alphabet = "aZz09_!.' \u00e9\u00c9-A\n";
+    final Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      final StringBuilder sb = new StringBuilder();
+      final int length = random.nextInt(5);
+      for (int j = 0; j < length; j++) {
+        sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      final String text = sb.toString();
+      final boolean expected = text.isEmpty() || !Character.isLowerCase(text.charAt(0)) || text.indexOf('.') >= 0 || !atomPattern.matcher(text).matches();
+      assertThat(TERM_API.needsQuote(text)).as(text).isEqualTo(expected);
+    }
+  }
 }
@@ -0,0 +1,238 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.logic2j.engine.model.TermApiLocator.termApi;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.logic2j.engine.exception.InvalidTermException;
+
+public class TermReaderTest {
+
+  @Test
+  public void compound() {
+    final Struct<?> term = (Struct<?>) TermReader.parse("f(X, g(a, 1.5), [1,2,3]).");
+    assertThat(term.getName()).isEqualTo("f");
+    assertThat(term.getArity()).isEqualTo(3);
+    assertThat(((Var<?>) term.getArg(0)).getName()).isEqualTo("X");
+    assertThat(((Var<?>) term.getArg(0)).getIndex()).isEqualTo(0);
+    assertThat(term.getArg(1)).isEqualTo(new Struct<>("g", "a", 1.5));
+    assertThat(term.getArg(2)).isEqualTo(list(1, 2, 3));
+  }
+
+  @Test
+  public void sameVarWithinClause() {
+    final Struct<?> term = (Struct<?>) TermReader.parse("f(X, Y, X, _, _)");
+    assertThat(term.getArg(0)).isSameAs(term.getArg(2));
+    assertThat(term.getArg(1)).isNotSameAs(term.getArg(0));
+    assertThat(((Var<?>) term.getArg(3)).isAnon()).isTrue();
+    assertThat(termApi().distinctVars(term)).hasSize(2);
+  }
+
+  @Test
+  public void atoms() {
+    assertThat(TermReader.parse("abc")).isSameAs(SymbolTable.symbol("abc"));
+    assertThat(TermReader.parse("'hello world'")).isEqualTo("hello world");
+    assertThat(TermReader.parse("'it''s\\n'")).isEqualTo("it's\n");
+    assertThat(TermReader.parse("\"dq\"")).isEqualTo("dq");
+    assertThat(TermReader.parse("[]")).isEqualTo("[]");
+    assertThat(TermReader.parse("=..")).isEqualTo("=..");
+    assertThat(TermReader.parse("f(=..).")).isEqualTo(new Struct<>("f", "=.."));
+    assertThat(TermReader.parse("'a.b'")).isEqualTo("a.b");
+    assertThat(TermReader.parse("true")).isEqualTo(Struct.ATOM_TRUE);
+    assertThat(TermReader.parse("!")).isInstanceOf(Struct.class);
+    assertThat(TermReader.parse("'Abc'(x)")).isEqualTo(new Struct<>("Abc", "x"));
+    assertThat(TermReader.parse(";(a, b)")).isEqualTo(new Struct<>(";", "a", "b"));
+  }
+
+  @Test
+  public void numbers() {
+    assertThat(TermReader.parse("12")).isEqualTo(12);
+    assertThat(TermReader.parse("-12")).isEqualTo(-12);
+    assertThat(TermReader.parse("12345678901")).isEqualTo(12345678901L);
+    assertThat(TermReader.parse("-9223372036854775808")).isEqualTo(Long.MIN_VALUE);
+    assertThat(TermReader.parse("9223372036854775808")).isEqualTo(9.223372036854775808E18);
+    assertThat(TermReader.parse("1.5")).isEqualTo(1.5);
+    assertThat(TermReader.parse("-2.5e3")).isEqualTo(-2500.0);
+    assertThat(TermReader.parse("1E-2")).isEqualTo(0.01);
+  }
+
+  @Test
+  public void listWithTail() {
+    final Struct<?> term = (Struct<?>) TermReader.parse("[a, b | T]");
+    assertThat(term.getName()).isEqualTo(".");
+    assertThat(term.getArg(0)).isEqualTo("a");
+    final Struct<?> rest = (Struct<?>) term.getArg(1);
+    assertThat(rest.getArg(0)).isEqualTo("b");
+    assertThat(((Var<?>) rest.getArg(1)).getName()).isEqualTo("T");
+  }
+
+  @Test
+  public void clausesAndComments() {
+    final TermReader reader = new TermReader("% header\nf(a).  /* block\n comment */ g('x. y', 1.5).\n\nh(X) % trailing\n.\n% last");
+    assertThat(reader.read()).isEqualTo(new Struct<>("f", "a"));
+    assertThat(reader.read()).isEqualTo(new Struct<>("g", "x. y", 1.5));
+    assertThat(reader.read().toString()).isEqualTo("h(X)");
+    assertThat(reader.read()).isNull();
+    assertThat(reader.read()).isNull();
+  }
+
+  @Test
+  public void varsAreNotSharedAcrossClauses() {
+    final TermReader reader = new TermReader("f(X). g(X).");
+    final Object x1 = ((Struct<?>) reader.read()).getArg(0);
+    final Object x2 = ((Struct<?>) reader.read()).getArg(0);
+    assertThat(x1).isNotSameAs(x2);
+  }
+
+  @Test
+  public void withoutNormalization() {
+    final Struct<?> term = (Struct<?>) new TermReader("f(X).").normalize(false).read();
+    assertThat(((Var<?>) term.getArg(0)).getIndex()).isEqualTo(Term.NO_INDEX);
+  }
+
+  @Test
+  public void fromCharBufferRemaining() {
+    final CharBuffer buffer = CharBuffer.wrap("xxf(a).");
+    buffer.position(2);
+    assertThat(new TermReader(buffer).read()).isEqualTo(new Struct<>("f", "a"));
+  }
+
+  @Test
+  public void syntaxErrors() {
+    assertThatThrownBy(() -> new TermReader("f(a).\ng(a,\n b c).").stream().count())
+        .isInstanceOf(InvalidTermException.class).hasMessageContaining("line 3");
+    assertThatThrownBy(() -> TermReader.parse("f(a")).isInstanceOf(InvalidTermException.class);
+    assertThatThrownBy(() -> TermReader.parse("f(a))")).isInstanceOf(InvalidTermException.class);
+    assertThatThrownBy(() -> TermReader.parse("[a|b,c]")).isInstanceOf(InvalidTermException.class);
+    assertThatThrownBy(() -> TermReader.parse("'abc")).isInstanceOf(InvalidTermException.class);
+    assertThatThrownBy(() -> TermReader.parse("f(a). g(b).")).isInstanceOf(InvalidTermException.class);
+  }
+
+  @Test
+  public void recoversAfterSyntaxError() {
+    final TermReader reader = new TermReader("f(a b). g(c).");
+    assertThatThrownBy(reader::read).isInstanceOf(InvalidTermException.class);
+    assertThat(reader.read()).isEqualTo(new Struct<>("g", "c"));
+  }
+
+  @Test
+  public void deepTerm() {
+    final int depth = 100_000;
+    final String text = "f(".repeat(depth) + "x" + ")".repeat(depth) + ".";
+    Object term = new TermReader(text).normalize(false).read();
+    int count = 0;
+    while (term instanceof Struct<?> struct) {
+      term = struct.getArg(0);
+      count++;
+    }
+    assertThat(count).isEqualTo(depth);
+  }
+
+  @Test
+  public void chunkedSourceSameAsText() throws IOException {
+    final String text = sampleText(5_000);
+    final List<Object> expected = new TermReader(text).stream().collect(Collectors.toList());
+    assertThat(expected).hasSize(5_001);
+    // Deliver 7 characters at a time, so that tokens are cut everywhere
+    final StringReader chars = new StringReader(text);
+    final Readable trickle = target -> {
+      final char[] chunk = new char[Math.min(7, target.remaining())];
+      final int read = chars.read(chunk);
+      if (read > 0) {
+        target.put(chunk, 0, read);
+      }
+      return read;
+    };
+    final List<Object> actual = new TermReader(trickle).stream().collect(Collectors.toList());
+    assertThat(actual.size()).isEqualTo(expected.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertThat(actual.get(i).toString()).as("Term #" + i).isEqualTo(expected.get(i).toString());
+    }
+  }
+
+  @Test
+  public void batchesFromMappedFile() throws IOException {
+    final Path file = Files.createTempFile("terms", ".pl");
+    try {
+      Files.writeString(file, sampleText(20_000), StandardCharsets.UTF_8);
+      try (TermReader reader = TermReader.ofFile(file)) {
+        final List<Object> batch = new ArrayList<>();
+        int total = 0;
+        int count;
+        while ((count = reader.readBatch(batch, 1000)) > 0) {
+          total += count;
+          batch.clear();
+        }
+        assertThat(total).isEqualTo(20_001);
+      }
+      try (TermReader reader = TermReader.ofFile(file)) {
+        final Struct<?> first = (Struct<?>) reader.read();
+        assertThat(first.getArg(1)).isEqualTo("caf\u00e9 \u4e16");
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void emptyFile() throws IOException {
+    final Path file = Files.createTempFile("empty", ".pl");
+    try (TermReader reader = TermReader.ofFile(file)) {
+      assertThat(reader.read()).isNull();
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  /**
+   * @return count facts, then a list longer than the default window
+   */
+  private static String sampleText(int count) {
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      sb.append("fact(").append(i).append(", 'caf\u00e9 \u4e16', X, [a, -").append(i).append(".5 | X], 'it''s'). % comment ").append(i).append('\n');
+    }
+    sb.append("/* a long list */ long([");
+    for (int i = 0; i < TermReader.DEFAULT_WINDOW_CHARS; i++) {
+      sb.append(i > 0 ? "," : "").append(i);
+    }
+    sb.append("]).\n");
+    return sb.toString();
+  }
+
+  private static Object list(Object... elements) {
+    Object list = "[]";
+    for (int i = elements.length - 1; i >= 0; i--) {
+      list = new Struct<>(".", elements[i], list);
+    }
+    return list;
+  }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.logic2j.engine.model.Var.anyVar;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import org.junit.Test;
+
+public class TermWriterTest {
+
+  @Test
+  public void sameAsToString() throws IOException {
+    final Object[] terms = {
+        new Struct<>("f", "a", 1, 2L, 2.5, anyVar("X"), Struct.ATOM_TRUE, new Struct<>("Gg", "it's", new Struct<>("a.b")), new Struct<>("x\\y\n")),
+        new Struct<>(""),
+        new Struct<>("!"),
+        "atom",
+        12,
+        anyVar("Y")
+    };
+    for (final Object term : terms) {
+      final StringWriter out = new StringWriter();
+      new TermWriter(out).write(term);
+      assertThat(out.toString()).isEqualTo(term.toString());
+      final StringBuilder sb = new StringBuilder();
+      new TermWriter(sb).write(term);
+      assertThat(sb.toString()).isEqualTo(term.toString());
+    }
+  }
+
+  @Test
+  public void severalTermsInOnePass() throws IOException {
+    final StringBuilder sb = new StringBuilder("> ");
+    new TermWriter(sb).write(new Struct<>("f", 1)).append(". ").write(new Struct<>("G", "x"));
+    assertThat(sb.toString()).isEqualTo("> f(1). 'G'(x)");
+  }
+
+  @Test
+  public void deepTermIntoWriter() throws IOException {
+    final int length = 100_000;
+    Object list = "[]";
+    for (int i = length - 1; i >= 0; i--) {
+      list = new Struct<>(".", i, list);
+    }
+    final StringWriter out = new StringWriter();
+    new TermWriter(out).write(list);
+    assertThat(out.toString()).startsWith("'.'(0, '.'(1, ").endsWith("'.'(99999, [])" + ")".repeat(length - 1));
+  }
+
+}
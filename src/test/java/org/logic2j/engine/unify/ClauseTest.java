@@ -0,0 +1,115 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.unify;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.logic2j.engine.model.Struct;
+import org.logic2j.engine.model.TermReader;
+import org.logic2j.engine.model.Var;
+
+public class ClauseTest {
+  private final Unifier unifier = new Unifier();
+  private final VarBindings bindings = this.unifier.getBindings();
+
+  @Test
+  public void factAndRule() {
+    final Clause fact = new Clause(TermReader.parse("p(a, X)"));
+    assertThat(fact.isFact()).isTrue();
+    assertThat(fact.getHead()).isSameAs(fact.getTerm());
+    assertThat(fact.getVarCount()).isEqualTo(1);
+    assertThat(((Struct<?>) fact.getTerm()).isFrozen()).isTrue();
+
+    final Clause rule = new Clause(new Struct<>(Struct.FUNCTOR_CLAUSE, TermReader.parse("q(X)"), TermReader.parse("p(X, Y)")));
+    assertThat(rule.isFact()).isFalse();
+    assertThat(rule.getHead().toString()).isEqualTo("q(X)");
+    assertThat(rule.getBody().toString()).isEqualTo("p(X, Y)");
+    assertThat(rule.getVarCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void termIsNotModified() {
+    final Struct<?> whole = (Struct<?>) TermReader.parse("f(X, Y, g(Z, Y))");
+    final Struct<?> g = (Struct<?>) whole.getArg(2);
+    assertThat(g.getIndex()).isEqualTo(3);
+    final Clause clause = new Clause(g);
+    assertThat(clause.getVarCount()).isEqualTo(2);
+    assertThat(clause.getTerm().toString()).isEqualTo("g(Z, Y)");
+    assertThat(g.isFrozen()).isFalse();
+    assertThat(g.getIndex()).isEqualTo(3);
+    assertThat(((Var<?>) g.getArg(0)).getIndex()).isEqualTo(2);
+  }
+
+  @Test
+  public void instancesAreRenamedApart() {
+    final Clause clause = new Clause(TermReader.parse("p(X, f(Y, X))"));
+    final Object skeleton = clause.getTerm();
+    final int first = clause.instantiate(this.bindings);
+    final int second = clause.instantiate(this.bindings);
+    assertThat(this.bindings.getTop()).isEqualTo(4);
+    assertThat(clause.unifyHead(this.unifier, TermReader.parse("p(1, f(2, Z))"), this.bindings.newFrame(1), first)).isTrue();
+    assertThat(clause.unifyHead(this.unifier, TermReader.parse("p(a, W)"), this.bindings.newFrame(1), second)).isTrue();
+    assertThat(this.bindings.resolve(skeleton, first)).isEqualTo(TermReader.parse("p(1, f(2, 1))"));
+    assertThat(this.bindings.resolve(skeleton, second).toString()).isEqualTo("p(a, f(Y, a))");
+    // The skeleton is untouched
+    assertThat(clause.getTerm()).isSameAs(skeleton);
+    assertThat(skeleton.toString()).isEqualTo("p(X, f(Y, X))");
+    this.bindings.undo(0);
+    this.bindings.releaseFrames(first);
+    assertThat(this.bindings.getTop()).isZero();
+  }
+
+  @Test
+  public void appendByStructureSharing() {
+    final List<Clause> program = List.of(
+        new Clause(TermReader.parse("append([], L, L)")),
+        new Clause(new Struct<>(Struct.FUNCTOR_CLAUSE, TermReader.parse("append([H|T], L, [H|R])"), TermReader.parse("append(T, L, R)"))));
+    final Object goal = TermReader.parse("append(X, Y, [1, 2, 3])");
+    final int goalBase = this.bindings.newFrame(goal);
+    final List<String> solutions = new ArrayList<>();
+    solve(program, goal, goalBase, () -> solutions.add(this.bindings.resolve(goal, goalBase).toString()));
+    assertThat(solutions).hasSize(4);
+    assertThat(solutions.get(0)).isEqualTo(TermReader.parse("append([], [1,2,3], [1,2,3])").toString());
+    assertThat(solutions.get(3)).isEqualTo(TermReader.parse("append([1,2,3], [], [1,2,3])").toString());
+    assertThat(this.bindings.getTrailSize()).isZero();
+    assertThat(this.bindings.getTop()).isEqualTo(goalBase + 2);
+  }
+
+  /**
+   * Depth-first resolution of a single goal, clause bodies having at most one goal.
+   */
+  private void solve(List<Clause> program, Object goal, int goalBase, Runnable onSolution) {
+    for (final Clause clause : program) {
+      final int mark = this.bindings.mark();
+      final int base = clause.instantiate(this.bindings);
+      if (clause.unifyHead(this.unifier, goal, goalBase, base)) {
+        if (clause.isFact()) {
+          onSolution.run();
+        } else {
+          solve(program, clause.getBody(), base, onSolution);
+        }
+      }
+      this.bindings.undo(mark);
+      this.bindings.releaseFrames(base);
+    }
+  }
+
+}
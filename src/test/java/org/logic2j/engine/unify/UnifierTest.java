@@ -0,0 +1,140 @@
+/*
+ * logic2j - "Bring Logic to your Java" - Copyright (c) 2017 Laurent.Tettoni@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Foobar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.logic2j.engine.unify;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Test;
+import org.logic2j.engine.exception.InvalidTermException;
+import org.logic2j.engine.model.Struct;
+import org.logic2j.engine.model.TermReader;
+import org.logic2j.engine.model.Var;
+
+public class UnifierTest {
+  private final Unifier unifier = new Unifier();
+  private final VarBindings bindings = this.unifier.getBindings();
+
+  @Test
+  public void atomic() {
+    assertThat(this.unifier.unify("a", 0, "a", 0)).isTrue();
+    assertThat(this.unifier.unify("a", 0, "b", 0)).isFalse();
+    assertThat(this.unifier.unify(1, 0, 1, 0)).isTrue();
+    assertThat(this.unifier.unify(1, 0, 1L, 0)).isFalse();
+    assertThat(this.unifier.unify(Struct.ATOM_TRUE, 0, new Struct<>("true"), 0)).isTrue();
+    assertThat(this.bindings.getTrailSize()).isZero();
+  }
+
+  @Test
+  public void bindsBothSides() {
+    final Object goal = TermReader.parse("f(X, b, g(Z))");
+    final Object fact = TermReader.parse("f(a, Y, g(1))");
+    final int goalBase = this.bindings.newFrame(goal);
+    final int factBase = this.bindings.newFrame(fact);
+    assertThat(this.unifier.unify(goal, goalBase, fact, factBase)).isTrue();
+    assertThat(this.bindings.resolve(goal, goalBase)).isEqualTo(new Struct<>("f", "a", "b", new Struct<>("g", 1)));
+    assertThat(this.bindings.resolve(fact, factBase)).isEqualTo(new Struct<>("f", "a", "b", new Struct<>("g", 1)));
+    assertThat(this.bindings.getTrailSize()).isEqualTo(3);
+  }
+
+  @Test
+  public void failureUndoesItsBindings() {
+    final Object left = TermReader.parse("f(X, X)");
+    final Object right = TermReader.parse("f(a, b)");
+    final int leftBase = this.bindings.newFrame(left);
+    final int rightBase = this.bindings.newFrame(right);
+    assertThat(this.unifier.unify(left, leftBase, right, rightBase)).isFalse();
+    assertThat(this.bindings.getTrailSize()).isZero();
+    assertThat(this.bindings.isBound((Var<?>) ((Struct<?>) left).getArg(0), leftBase)).isFalse();
+  }
+
+  @Test
+  public void sameTermInTwoFrames() {
+    final Object clause = TermReader.parse("p(X, Y)");
+    final int first = this.bindings.newFrame(clause);
+    final int second = this.bindings.newFrame(clause);
+    assertThat(second).isEqualTo(first + 2);
+    assertThat(this.unifier.unify(clause, first, TermReader.parse("p(1, 2)"), 0)).isTrue();
+    assertThat(this.unifier.unify(clause, second, TermReader.parse("p(3, 4)"), 0)).isTrue();
+    assertThat(this.bindings.resolve(clause, first)).isEqualTo(new Struct<>("p", 1, 2));
+    assertThat(this.bindings.resolve(clause, second)).isEqualTo(new Struct<>("p", 3, 4));
+  }
+
+  @Test
+  public void varChains() {
+    final Object term = TermReader.parse("f(A, B, C, A, C)");
+    final int base = this.bindings.newFrame(term);
+    final Struct<?> f = (Struct<?>) term;
+    assertThat(this.unifier.unify(f.getArg(0), f.getArg(1), base)).isTrue();
+    assertThat(this.unifier.unify(f.getArg(1), f.getArg(2), base)).isTrue();
+    assertThat(this.unifier.unify(f.getArg(2), f.getArg(0), base)).isTrue(); // Already the same variable
+    assertThat(this.bindings.getTrailSize()).isEqualTo(2);
+    assertThat(this.unifier.unify(f.getArg(4), "z", base)).isTrue();
+    assertThat(this.bindings.resolve(term, base)).isEqualTo(new Struct<>("f", "z", "z", "z", "z", "z"));
+  }
+
+  @Test
+  public void anonymousIsNeverBound() {
+    final Object term = TermReader.parse("f(_, _, X)");
+    final int base = this.bindings.newFrame(term);
+    assertThat(this.unifier.unify(term, base, TermReader.parse("f(a, g(b), c)"), 0)).isTrue();
+    assertThat(this.bindings.getTrailSize()).isEqualTo(1);
+  }
+
+  @Test
+  public void markAndUndo() {
+    final Object term = TermReader.parse("f(X, Y)");
+    final int base = this.bindings.newFrame(term);
+    final Struct<?> f = (Struct<?>) term;
+    assertThat(this.unifier.unify(f.getArg(0), "a", base)).isTrue();
+    final int mark = this.bindings.mark();
+    assertThat(this.unifier.unify(f.getArg(1), "b", base)).isTrue();
+    this.bindings.undo(mark);
+    assertThat(this.bindings.resolve(term, base).toString()).isEqualTo("f(a, Y)");
+    this.bindings.undo(0);
+    this.bindings.releaseFrames(base);
+    assertThat(this.bindings.getTop()).isZero();
+  }
+
+  @Test
+  public void longLists() {
+    final int length = 100_000;
+    final StringBuilder ground = new StringBuilder("[");
+    final StringBuilder open = new StringBuilder("[");
+    for (int i = 0; i < length; i++) {
+      ground.append(i > 0 ? "," : "").append(i);
+      open.append(i > 0 ? "," : "").append(i % 1000 == 0 ? "X" + i : String.valueOf(i));
+    }
+    final Object left = TermReader.parse(ground.append("]"));
+    final Object right = TermReader.parse(open.append("|T]"));
+    final int leftBase = this.bindings.newFrame(left);
+    final int rightBase = this.bindings.newFrame(right);
+    assertThat(VarBindings.varCount(right)).isEqualTo(length / 1000 + 1);
+    assertThat(this.unifier.unify(left, leftBase, right, rightBase)).isTrue();
+    final Object resolved = this.bindings.resolve(right, rightBase);
+    assertThat(resolved.toString()).isEqualTo(left.toString());
+  }
+
+  @Test
+  public void requiresNormalizedTerms() {
+    final Struct<?> raw = new Struct<>("f", Var.anyVar("X"));
+    assertThatThrownBy(() -> this.bindings.newFrame(raw)).isInstanceOf(InvalidTermException.class);
+    assertThatThrownBy(() -> this.unifier.unify(raw, 0, TermReader.parse("f(a)"), 0)).isInstanceOf(InvalidTermException.class);
+  }
+
+}